@@ -1,5 +1,8 @@
 package com.deathnode.client.config;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class Config {
     private static String NODE_SELF_ID = "nodeZ";  // default node id
     private static String NODE_PSEUDONYM = null;     // generated randomly if not set
@@ -9,13 +12,18 @@ public class Config {
     // public static final String SERVER_HOST = "127.0.0.1"; // localhost
     public static final String SERVER_HOST = "192.168.0.10"; // VM
     public static final int SERVER_PORT = 9090;
+    // Failover: comma-separated host:port list, tried in order (-Ddeathnode.servers=...)
+    public static final String SERVER_ADDRESSES_PROPERTY = "deathnode.servers";
+    public static final int RECONNECT_DELAY_MS = 1000; // wait before reconnecting after the stream fails
     
     // Sync configuration
     public static final int BUFFER_SIZE = 25;
     public static final int BUFFER_THRESHOLD_TO_SYNC = 3; // max buffered reports before triggering sync
-    public static final int SYNC_TIMEOUT_SECONDS = 9;   
+    public static final int SYNC_TIMEOUT_SECONDS = 9;   // used when the server does not send a round deadline
+    public static final int SYNC_TIMEOUT_MARGIN_MS = 4000; // added to the server's round deadline (finalization and broadcast)
     public static final int MAX_ENVELOPES_TO_SEND_PER_SYNC = BUFFER_SIZE;
     public static final int INTERVAL_BETWEEN_PENDING_CHECKS_SECONDS = 100000; // seconds between checking for pending reports
+    public static final boolean TRACING_ENABLED = true; // spans of each sync round written to getTracesFile()
 
     // Report content sizes
     public static final int MAX_SUBJECT_LENGTH = 32;
@@ -52,6 +60,20 @@ public class Config {
         return NODE_PSEUDONYM != null ? NODE_PSEUDONYM : "default_node";
     }
 
+    public static List<String> getServerAddresses() {
+        String configured = System.getProperty(SERVER_ADDRESSES_PROPERTY);
+        if (configured == null || configured.isBlank()) {
+            return List.of(SERVER_HOST + ":" + SERVER_PORT);
+        }
+        List<String> addresses = new ArrayList<>();
+        for (String address : configured.split(",")) {
+            if (!address.isBlank()) {
+                addresses.add(address.trim());
+            }
+        }
+        return addresses;
+    }
+
     public static String getRandomReportsFilePath() {
         return "client-data/reports.json";
     }
@@ -68,6 +90,10 @@ public class Config {
         return "client-data/" + NODE_SELF_ID + "/keys/keystore.jks";
     }
 
+    public static String getTracesFile() {
+        return "client-data/" + NODE_SELF_ID + "/traces.jsonl";
+    }
+
     public static String getNodeKeysDir() {
         return "client-data/" + NODE_SELF_ID + "/keys/";
     }
@@ -0,0 +1,75 @@
+package com.deathnode.client.config;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.jmx.JmxConfig;
+import io.micrometer.jmx.JmxMeterRegistry;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client metrics, published over JMX under the "deathnode" domain (e.g. with jconsole).
+ * Meters are registered on first use and then cached by name and tags, so recording
+ * does not go through the registry again.
+ */
+public final class Metrics {
+
+    private static final MeterRegistry REGISTRY = new JmxMeterRegistry(new JmxConfig() {
+        @Override
+        public String get(String key) {
+            return null;
+        }
+
+        @Override
+        public String domain() {
+            return "deathnode";
+        }
+    }, Clock.SYSTEM);
+
+    private static final Map<MeterKey, Timer> TIMERS = new ConcurrentHashMap<>();
+    private static final Map<MeterKey, Counter> COUNTERS = new ConcurrentHashMap<>();
+
+    public static MeterRegistry registry() {
+        return REGISTRY;
+    }
+
+    /**
+     * Record a duration measured from {@code startNanos} ({@link System#nanoTime()}) until now.
+     */
+    public static void recordSince(String name, long startNanos, String... tags) {
+        record(name, System.nanoTime() - startNanos, TimeUnit.NANOSECONDS, tags);
+    }
+
+    public static void record(String name, long amount, TimeUnit unit, String... tags) {
+        TIMERS.computeIfAbsent(new MeterKey(name, Arrays.asList(tags)), key -> Timer.builder(name)
+                        .tags(tags)
+                        .tag("node", Config.getNodeSelfId())
+                        .register(REGISTRY))
+                .record(amount, unit);
+    }
+
+    public static void count(String name, long amount, String... tags) {
+        COUNTERS.computeIfAbsent(new MeterKey(name, Arrays.asList(tags)), key -> Counter.builder(name)
+                        .tags(tags)
+                        .tag("node", Config.getNodeSelfId())
+                        .register(REGISTRY))
+                .increment(amount);
+    }
+
+    public static void close() {
+        REGISTRY.close();
+    }
+
+    private record MeterKey(String name, List<String> tags) {
+    }
+
+    private Metrics() {
+        // empty
+    }
+}
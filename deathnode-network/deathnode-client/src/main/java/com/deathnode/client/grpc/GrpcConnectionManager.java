@@ -9,19 +9,26 @@ import io.grpc.netty.shaded.io.netty.handler.ssl.SslContext;
 import com.deathnode.client.config.Config;
 import javax.net.ssl.SSLException;
 import java.io.File;
+import java.util.List;
 
+/**
+ * Channel to the server. With several server addresses (active/standby servers), the
+ * channel points at one of them at a time and {@link #failover()} moves to the next.
+ */
 public class GrpcConnectionManager {
 
-    private final String serverHost;
-    private final int serverPort;
+    private final List<String> serverAddresses;
+    private int current = 0;
     
     private ManagedChannel channel;
     private SyncServiceGrpc.SyncServiceStub asyncStub;
     private SyncServiceGrpc.SyncServiceBlockingStub blockingStub;
 
-    public GrpcConnectionManager(String serverHost, int serverPort) {
-        this.serverHost = serverHost;
-        this.serverPort = serverPort;
+    public GrpcConnectionManager(List<String> serverAddresses) {
+        if (serverAddresses.isEmpty()) {
+            throw new IllegalArgumentException("No server address configured");
+        }
+        this.serverAddresses = List.copyOf(serverAddresses);
         connect();
     }
 
@@ -30,6 +37,11 @@ public class GrpcConnectionManager {
             return;
         }
 
+        String address = serverAddresses.get(current);
+        int separator = address.lastIndexOf(':');
+        String serverHost = address.substring(0, separator);
+        int serverPort = Integer.parseInt(address.substring(separator + 1));
+
         System.out.println("Connecting to server at " + serverHost + ":" + serverPort + " (TLS)");
 
         try {
@@ -59,6 +71,16 @@ public class GrpcConnectionManager {
         }
     }
 
+    /**
+     * Drop the current channel and point at the next server address (the same one if there
+     * is only one).
+     */
+    public synchronized void failover() {
+        shutdown();
+        current = (current + 1) % serverAddresses.size();
+        connect();
+    }
+
     public SyncServiceGrpc.SyncServiceStub getAsyncStub() {
         return asyncStub;
     }
@@ -0,0 +1,103 @@
+package com.deathnode.client.grpc;
+
+import java.util.*;
+
+/**
+ * Own envelopes uploaded in rounds whose block has not committed yet, by round id.
+ * <p>
+ * Rounds are pipelined and each buffer continues the node chain of the one uploaded
+ * before it, so when a round is rejected or dropped, the rounds uploaded after it are
+ * released too: their envelopes go back to the pending buffer and are sent again, in
+ * order, in the next round.
+ */
+class InFlightEnvelopes {
+
+    // round id -> (envelope hash -> file path), in upload order
+    private final LinkedHashMap<String, Map<String, String>> rounds = new LinkedHashMap<>();
+    private final Set<String> paths = new HashSet<>();
+
+    /**
+     * Record the envelopes uploaded for a round.
+     */
+    synchronized void add(String roundId, Map<String, String> envelopes) {
+        if (envelopes.isEmpty()) {
+            return;
+        }
+        rounds.computeIfAbsent(roundId, id -> new LinkedHashMap<>()).putAll(envelopes);
+        paths.addAll(envelopes.values());
+    }
+
+    synchronized boolean contains(String path) {
+        return paths.contains(path);
+    }
+
+    synchronized boolean isTracked(String roundId) {
+        return rounds.containsKey(roundId);
+    }
+
+    synchronized boolean isEmpty() {
+        return paths.isEmpty();
+    }
+
+    synchronized int count() {
+        return paths.size();
+    }
+
+    /**
+     * The envelope is in a committed block.
+     */
+    synchronized void committed(String hash) {
+        Iterator<Map<String, String>> it = rounds.values().iterator();
+        while (it.hasNext()) {
+            Map<String, String> envelopes = it.next();
+            String path = envelopes.remove(hash);
+            if (path != null) {
+                paths.remove(path);
+                if (envelopes.isEmpty()) {
+                    it.remove();
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * The round will not commit: release its envelopes and those of the rounds uploaded after it.
+     *
+     * @return hashes of the released envelopes (empty if the round is not tracked)
+     */
+    synchronized Set<String> release(String roundId) {
+        Set<String> released = new HashSet<>();
+        boolean found = false;
+        Iterator<Map.Entry<String, Map<String, String>>> it = rounds.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Map<String, String>> round = it.next();
+            found = found || round.getKey().equals(roundId);
+            if (found) {
+                released.addAll(round.getValue().keySet());
+                paths.removeAll(round.getValue().values());
+                it.remove();
+            }
+        }
+        return released;
+    }
+
+    /**
+     * No uploaded round will commit (the server rolled all of them back).
+     *
+     * @return hashes of the released envelopes
+     */
+    synchronized Set<String> releaseAll() {
+        Set<String> released = new HashSet<>();
+        for (Map<String, String> envelopes : rounds.values()) {
+            released.addAll(envelopes.keySet());
+        }
+        clear();
+        return released;
+    }
+
+    synchronized void clear() {
+        rounds.clear();
+        paths.clear();
+    }
+}
@@ -1,6 +1,7 @@
 package com.deathnode.client.grpc;
 
 import com.deathnode.client.config.Config;
+import com.deathnode.client.config.Metrics;
 import com.deathnode.client.service.DatabaseService;
 import com.deathnode.client.service.ReportCleanupService;
 import com.deathnode.tool.util.KeyLoader;
@@ -10,14 +11,26 @@ import com.deathnode.common.grpc.Error;
 import com.deathnode.common.grpc.Ack;
 import com.deathnode.common.model.Envelope;
 import com.deathnode.common.model.Metadata;
+import com.deathnode.common.tracing.Tracing;
 import com.deathnode.common.util.HashUtils;
 import com.deathnode.common.util.MerkleUtils;
 import com.deathnode.tool.SecureDocumentProtocol;
-import com.google.gson.*;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.Context;
+import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
-
-import java.nio.charset.StandardCharsets;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.io.IOException;
 import java.nio.file.*;
 import java.security.PrivateKey;
 import java.util.*;
@@ -29,27 +42,63 @@ import java.sql.SQLException;
  * <p>
  * This allows the server to push RequestBuffer messages at any time,
  * enabling coordinated sync rounds across all nodes.
+ * <p>
+ * The client's part of each round (request, upload, verification, commit) is traced as
+ * children of the server's round span, whose context arrives in the round's messages.
  */
 public class PersistentSyncClient {
+
+    private static final Logger log = LoggerFactory.getLogger(PersistentSyncClient.class);
+
     private final DatabaseService db;
     private final GrpcConnectionManager connectionManager;
     private final ReportCleanupService cleanupService;
+    private final VerificationsHandler verificationsHandler;
     private final Queue<String> pendingEnvelopes = new ConcurrentLinkedQueue<>();
     private final ScheduledExecutorService timeoutExecutor = Executors.newScheduledThreadPool(1);
     private final ScheduledExecutorService pendingReportsExecutor = Executors.newScheduledThreadPool(1);
+    // catch-up triggered by a SyncResult runs here, off the gRPC inbound thread
+    private final ExecutorService catchUpExecutor = Executors.newSingleThreadExecutor();
+    private final OpenTelemetry openTelemetry;
+    private final Tracer tracer;
 
     private StreamObserver<ClientMessage> requestObserver;
     private volatile boolean connected = false;
+    // set when the stream is closed on purpose, so the stream ending does not trigger a reconnect
+    private volatile boolean closing = false;
+    // envelopes of pendingEnvelopes already uploaded in rounds that have not committed yet
+    private final InFlightEnvelopes inFlight = new InFlightEnvelopes();
+    // envelopes uploaded but not committed yet, by hash: delta SyncResults only reference them
+    private final Map<String, ByteString> outbox = new ConcurrentHashMap<>();
     private volatile String currentRoundId = null;
-    private volatile long roundStartTime = -1;
-    private volatile ScheduledFuture<?> timeoutTask = null;
+    // timeout key of our last sync request, until the server opens the round
+    private volatile String initiatingRoundId = "";
+    // one timeout per round waiting for its SyncResult, in upload order (guarded by itself)
+    private final LinkedHashMap<String, RoundTimeout> roundTimeouts = new LinkedHashMap<>();
+    // a SyncResult was received and its commit (or failure) is not in yet: the server holds later rounds until then
+    private volatile boolean awaitingCommit = false;
     private volatile ScheduledFuture<?> pendingReportsTask = null;
     private volatile CompletableFuture<Void> syncCompletionFuture = null;
 
-    public PersistentSyncClient(DatabaseService db, String serverHost, int serverPort) {
+    public PersistentSyncClient(DatabaseService db, List<String> serverAddresses) {
         this.db = db;
-        this.connectionManager = new GrpcConnectionManager(serverHost, serverPort);
+        this.connectionManager = new GrpcConnectionManager(serverAddresses);
         this.cleanupService = new ReportCleanupService(db);
+        this.verificationsHandler = new VerificationsHandler(db);
+        this.openTelemetry = createOpenTelemetry();
+        this.tracer = openTelemetry.getTracer(Tracing.INSTRUMENTATION);
+    }
+
+    private static OpenTelemetry createOpenTelemetry() {
+        if (!Config.TRACING_ENABLED) {
+            return Tracing.disabled();
+        }
+        try {
+            return Tracing.create("deathnode-client-" + Config.getNodeSelfId(), Path.of(Config.getTracesFile()));
+        } catch (IOException e) {
+            log.warn("Tracing disabled, failed to open {}: {}", Config.getTracesFile(), e.getMessage());
+            return Tracing.disabled();
+        }
     }
 
     /**
@@ -62,6 +111,15 @@ public class PersistentSyncClient {
             // System.out.println("Already connected");
             return;
         }
+        closing = false;
+
+        // Fetch the blocks committed while this node was away before joining new rounds
+        catchUp();
+        // catch-up took the committed envelopes out of the pending buffer; rounds still in flight
+        // on the old stream will never complete on this one, so the rest is sent again
+        inFlight.clear();
+        outbox.clear();
+        currentRoundId = null;
 
         SyncServiceGrpc.SyncServiceStub asyncStub = connectionManager.getAsyncStub();
 
@@ -72,6 +130,7 @@ public class PersistentSyncClient {
         Hello hello = Hello.newBuilder()
                 .setNodeId(Config.getNodeSelfId())
                 .setStartSync(false)
+                .setSupportsDelta(true)
                 .build();
 
         ClientMessage helloMsg = ClientMessage.newBuilder()
@@ -81,7 +140,91 @@ public class PersistentSyncClient {
         requestObserver.onNext(helloMsg);
         connected = true;
 
-        System.out.println("[V] Connected to server");
+        log.info("Connected to server");
+
+        if (!pendingEnvelopes.isEmpty()) {
+            sendPendingStatus();
+        }
+    }
+
+    /**
+     * Fetch and apply the committed blocks this node is missing, in order. Each block is
+     * verified like a live one before it is stored; catch-up stops at the first block that
+     * fails.
+     *
+     * @return number of blocks applied
+     */
+    public synchronized int catchUp() {
+        long fromBlock;
+        try {
+            DatabaseService.LastBlockInfo last = db.getLastBlockInfo();
+            fromBlock = (last == null) ? 1 : last.getBlockNumber() + 1;
+        } catch (SQLException e) {
+            log.warn("Catch-up skipped, failed to read last block: {}", e.getMessage());
+            return 0;
+        }
+
+        FetchBlocksRequest request = FetchBlocksRequest.newBuilder()
+                .setNodeId(Config.getNodeSelfId())
+                .setFromBlockNumber(fromBlock)
+                .build();
+
+        int applied = 0;
+        Span span = tracer.spanBuilder("client.catch-up")
+                .setAttribute("block.from", fromBlock)
+                .startSpan();
+        Context.CancellableContext context = Context.current().withCancellation();
+        Context previous = context.attach();
+        try {
+            Iterator<BlockChunk> chunks = connectionManager.getBlockingStub().fetchBlocks(request);
+            List<ByteString> envelopes = new ArrayList<>();
+            while (chunks.hasNext()) {
+                BlockChunk chunk = chunks.next();
+                envelopes.addAll(chunk.getEnvelopesList());
+                if (!chunk.getLast()) {
+                    continue;
+                }
+
+                if (envelopes.size() != chunk.getEnvelopeCount()) {
+                    log.warn("Catch-up block {}: expected {} envelopes, got {}", chunk.getBlockNumber(), chunk.getEnvelopeCount(), envelopes.size());
+                    break;
+                }
+                VerificationsHandler.VerificationsResult result = verificationsHandler.performCatchUpVerifications(
+                        chunk.getBlockNumber(),
+                        envelopes,
+                        chunk.getBlockRoot().toByteArray(),
+                        chunk.getSignedBlockRoot().toByteArray(),
+                        chunk.getPrevBlockRoot().toByteArray()
+                );
+                if (!result.isSuccess()) {
+                    log.warn("Catch-up block {} failed verification: {}", chunk.getBlockNumber(), result.getErrorMessage());
+                    break;
+                }
+                if (!applyBlock(envelopes, chunk.getBlockNumber(), chunk.getBlockRoot().toByteArray())) {
+                    break;
+                }
+                applied++;
+                envelopes = new ArrayList<>();
+            }
+        } catch (StatusRuntimeException e) {
+            log.warn("Catch-up failed: {}", e.getStatus());
+            span.setStatus(StatusCode.ERROR, e.getStatus().getCode().name());
+        } finally {
+            context.detach(previous);
+            // stops the server stream if we broke out early
+            context.cancel(null);
+            span.setAttribute("blocks.applied", applied);
+            span.end();
+        }
+
+        if (applied > 0) {
+            log.atInfo().setMessage("Caught up")
+                    .addKeyValue("blocks", applied)
+                    .addKeyValue("from_block", fromBlock)
+                    .log();
+            Metrics.count("deathnode.client.catchup.blocks", applied);
+        }
+        return applied;
     }
 
     /**
@@ -100,7 +243,7 @@ public class PersistentSyncClient {
             int pendingCount = pendingEnvelopes.size();
 
             if (pendingCount > 0) {
-                System.out.println("Found " + pendingCount + " pending reports. Triggering sync...");
+                log.info("Found {} pending reports, triggering sync", pendingCount);
                 triggerSync();
             } else {
                 //System.out.println("No pending reports found");
@@ -144,6 +287,9 @@ public class PersistentSyncClient {
             // Clear the buffer
             int bufferSize = pendingEnvelopes.size();
             pendingEnvelopes.clear();
+            inFlight.clear();
+            outbox.clear();
+            cancelTimeoutMonitoring("Connection timeout");
             System.out.println("Pending buffer cleared: " + bufferSize + " envelopes removed");
 
             System.err.println("=== RECOVERY COMPLETE ===");
@@ -164,42 +310,117 @@ public class PersistentSyncClient {
      * If no SyncResult is received within the timeout period, trigger cleanup.
      */
     private void startTimeoutMonitoring(String roundId) {
-        // Cancel any existing timeout task
-        cancelTimeoutMonitoring("Starting new timeout monitoring for round " + roundId);
+        startTimeoutMonitoring(roundId, Config.SYNC_TIMEOUT_SECONDS * 1000L);
+    }
 
-        roundStartTime = System.currentTimeMillis();
+    /**
+     * Each round has its own timeout, cancelled only by that round's SyncResult or error.
+     * The server finalizes a round only once the previous block has committed, so a timeout
+     * that fires while this node waits for a commit, or behind an earlier round, does not
+     * count: it is re-armed when the commit arrives, and fires anyway once the commit is a
+     * full sync timeout late.
+     */
+    private void startTimeoutMonitoring(String roundId, long timeoutMs) {
         currentRoundId = roundId;
+        long now = System.currentTimeMillis();
+        synchronized (roundTimeouts) {
+            RoundTimeout previous = roundTimeouts.remove(roundId);
+            if (previous != null) {
+                previous.task().cancel(false);
+            }
+            roundTimeouts.put(roundId, new RoundTimeout(now, now + timeoutMs, scheduleRoundTimeout(roundId, timeoutMs)));
+        }
+    }
 
-        // Schedule a task to check for timeout
-        this.timeoutTask = timeoutExecutor.schedule(() -> {
-            synchronized (this) {
-                // Check if we're still in the same round
-                if (!roundId.equals(currentRoundId)) {
-                    return; // Round was completed or changed
-                }
+    private ScheduledFuture<?> scheduleRoundTimeout(String roundId, long delayMs) {
+        return timeoutExecutor.schedule(() -> onRoundTimeout(roundId), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void onRoundTimeout(String roundId) {
+        RoundTimeout timeout;
+        synchronized (roundTimeouts) {
+            timeout = roundTimeouts.get(roundId);
+            if (timeout == null) {
+                return; // answered meanwhile
+            }
+            long graceMs = Config.SYNC_TIMEOUT_SECONDS * 1000L;
+            boolean queued = awaitingCommit || !roundTimeouts.keySet().iterator().next().equals(roundId);
+            long now = System.currentTimeMillis();
+            if (queued && now < timeout.dueAt() + graceMs) {
+                log.debug("Round {} is waiting behind an uncommitted block, timeout re-armed on its commit", roundId);
+                long delayMs = timeout.dueAt() + graceMs - now;
+                roundTimeouts.put(roundId, new RoundTimeout(timeout.startedAt(), timeout.dueAt(), scheduleRoundTimeout(roundId, delayMs)));
+                return;
+            }
+        }
+        log.error("Round {} exceeded {} ms", roundId, System.currentTimeMillis() - timeout.startedAt());
+        currentRoundId = null;
+        handleConnectionTimeout();
+    }
 
-                long elapsedMs = System.currentTimeMillis() - roundStartTime;
-                long timeoutMs = Config.SYNC_TIMEOUT_SECONDS * 1000;
+    /**
+     * A block committed (or failed): the rounds queued behind it get what is left of their
+     * deadline, at least the finalization margin.
+     */
+    private void rearmRoundTimeouts() {
+        long now = System.currentTimeMillis();
+        synchronized (roundTimeouts) {
+            for (Map.Entry<String, RoundTimeout> entry : roundTimeouts.entrySet()) {
+                RoundTimeout timeout = entry.getValue();
+                timeout.task().cancel(false);
+                long delayMs = Math.max(timeout.dueAt() - now, Config.SYNC_TIMEOUT_MARGIN_MS);
+                entry.setValue(new RoundTimeout(timeout.startedAt(), now + delayMs, scheduleRoundTimeout(entry.getKey(), delayMs)));
+            }
+        }
+    }
+
+    /**
+     * The round was answered: stop its timeout.
+     *
+     * @return when its buffer was sent, or -1 if the round had no timeout
+     */
+    private long cancelRoundTimeout(String roundId) {
+        synchronized (roundTimeouts) {
+            RoundTimeout timeout = roundTimeouts.remove(roundId);
+            if (timeout == null) {
+                return -1;
+            }
+            timeout.task().cancel(false);
+            return timeout.startedAt();
+        }
+    }
 
-                if (elapsedMs >= timeoutMs) {
-                    System.err.println("TIMEOUT: Round " + roundId + " exceeded " + Config.SYNC_TIMEOUT_SECONDS + " seconds");
-                    currentRoundId = null; // Clear round ID
-                    handleConnectionTimeout();
+    /**
+     * The round and the ones uploaded after it will not complete: stop their timeouts.
+     */
+    private void cancelRoundTimeoutsFrom(String roundId) {
+        synchronized (roundTimeouts) {
+            boolean found = false;
+            Iterator<Map.Entry<String, RoundTimeout>> it = roundTimeouts.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, RoundTimeout> entry = it.next();
+                found = found || entry.getKey().equals(roundId);
+                if (found) {
+                    entry.getValue().task().cancel(false);
+                    it.remove();
                 }
             }
-        }, Config.SYNC_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
     }
 
     /**
-     * Cancel the current timeout monitoring task.
+     * Stop every round timeout (stream gone, rounds rolled back, or shutting down).
      */
     private void cancelTimeoutMonitoring(String reason) {
-        // System.out.println("Canceling timeout monitoring: " + reason);
-        if (this.timeoutTask != null) {
-            this.timeoutTask.cancel(false);
-            this.timeoutTask = null;
+        log.debug("Cancelling round timeouts: {}", reason);
+        synchronized (roundTimeouts) {
+            roundTimeouts.values().forEach(timeout -> timeout.task().cancel(false));
+            roundTimeouts.clear();
         }
-        roundStartTime = -1;
+        awaitingCommit = false;
+    }
+
+    private record RoundTimeout(long startedAt, long dueAt, ScheduledFuture<?> task) {
     }
 
     /**
@@ -208,6 +429,26 @@ public class PersistentSyncClient {
     public void addPendingEnvelope(String envelopeFilePath) {
         pendingEnvelopes.add(envelopeFilePath);
         // System.out.println("Added envelope to buffer: " + Paths.get(envelopeFilePath).getFileName() + " (total: " + pendingEnvelopes.size() + ")");
+        sendPendingStatus();
+    }
+
+    /**
+     * Tell the server how many envelopes are waiting for a round; its scheduler decides
+     * when to open one.
+     */
+    private void sendPendingStatus() {
+        if (!connected) {
+            return;
+        }
+        PendingStatus status = PendingStatus.newBuilder()
+                .setNodeId(Config.getNodeSelfId())
+                .setPendingCount(Math.max(0, pendingEnvelopes.size() - inFlight.count()))
+                .build();
+        try {
+            requestObserver.onNext(ClientMessage.newBuilder().setPendingStatus(status).build());
+        } catch (Exception e) {
+            log.warn("Failed to send pending status: {}", e.getMessage());
+        }
     }
 
     /**
@@ -234,12 +475,16 @@ public class PersistentSyncClient {
         // Create a new CompletableFuture to track this sync round's completion
         syncCompletionFuture = new CompletableFuture<>();
 
-        System.out.println("\n[SYNC] Triggering sync round...");
+        log.info("Triggering sync round");
 
+        // the server's round span is a child of this one
+        Span span = tracer.spanBuilder("client.sync-request").startSpan();
         Hello hello = Hello.newBuilder()
                 .setNodeId(Config.getNodeSelfId())
                 .setStartSync(true)
+                .setTraceParent(traceParent(span))
                 .build();
+        span.end();
 
         ClientMessage helloMsg = ClientMessage.newBuilder()
                 .setHello(hello)
@@ -248,18 +493,20 @@ public class PersistentSyncClient {
         requestObserver.onNext(helloMsg);
 
         // Start timeout monitoring (UUID of round will be assigned by server, use a placeholder)
-        startTimeoutMonitoring("initiating-" + System.currentTimeMillis());
+        initiatingRoundId = "initiating-" + System.currentTimeMillis();
+        startTimeoutMonitoring(initiatingRoundId);
     }
 
     /**
      * Disconnect from server.
      */
     public void disconnect() {
+        closing = true;
         if (requestObserver != null && connected) {
             try {
                 requestObserver.onCompleted();
             } catch (Exception e) {
-                System.out.println("Error closing connection: " + e.getMessage());
+                log.warn("Error closing connection: {}", e.getMessage());
             }
         }
         connected = false;
@@ -272,6 +519,40 @@ public class PersistentSyncClient {
         connectionManager.shutdown();
         timeoutExecutor.shutdown();
         pendingReportsExecutor.shutdown();
+        catchUpExecutor.shutdown();
+        Metrics.close();
+        if (openTelemetry instanceof OpenTelemetrySdk sdk) {
+            sdk.close(); // flushes the last spans
+        }
+    }
+
+    /**
+     * The stream to the server ended without us closing it (server down, standby, or the
+     * connection was dropped): move to the next server address and connect again. Blocks
+     * committed in the meantime are fetched by the catch-up in {@link #connect()}.
+     */
+    private void scheduleReconnect() {
+        if (closing || timeoutExecutor.isShutdown()) {
+            return;
+        }
+        timeoutExecutor.schedule(() -> {
+            if (closing || connected) {
+                return;
+            }
+            log.info("Reconnecting");
+            Metrics.count("deathnode.client.reconnects", 1);
+            try {
+                connectionManager.failover();
+                connect();
+            } catch (Exception e) {
+                log.warn("Reconnect failed: {}", e.getMessage());
+                scheduleReconnect();
+            }
+        }, Config.RECONNECT_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static String traceParent(Span span) {
+        return Tracing.traceParent(io.opentelemetry.context.Context.root().with(span));
     }
 
     /**
@@ -294,6 +575,14 @@ public class PersistentSyncClient {
         }
     }
 
+    /**
+     * The round will not commit: its envelopes, and those of the rounds uploaded after it,
+     * go back to the pending buffer and leave the outbox.
+     */
+    private void releaseRound(String roundId) {
+        inFlight.release(roundId).forEach(outbox::remove);
+    }
+
     /**
      * Signal that the current sync round has completed (via any path: success, error, or timeout).
      */
@@ -303,23 +592,163 @@ public class PersistentSyncClient {
         }
     }
 
+    /**
+     * Store a verified block: block state first, then each envelope in global order. Own envelopes
+     * in the block leave the pending buffer.
+     *
+     * @return false if the envelopes could not be processed
+     */
+    private synchronized boolean applyBlock(List<ByteString> orderedEnvelopes, long blockNumber, byte[] blockRoot) {
+        long start = System.nanoTime();
+        boolean applied = storeBlock(orderedEnvelopes, blockNumber, blockRoot);
+        Metrics.recordSince("deathnode.client.block.commit", start, "outcome", applied ? "ok" : "failed");
+        return applied;
+    }
+
+    private boolean storeBlock(List<ByteString> orderedEnvelopes, long blockNumber, byte[] blockRoot) {
+        try {
+            db.upsertBlockState(blockNumber, HashUtils.bytesToHex(blockRoot));
+        } catch (SQLException e) {
+            log.warn("Failed to update block state in DB: {}", e.getMessage());
+        }
+
+        try {
+            int newEnvelopes = 0;
+            int existingEnvelopes = 0;
+
+            // Process each ordered envelope
+            for (ByteString envelopeBytes : orderedEnvelopes) {
+                String hash = HashUtils.sha256Hex(envelopeBytes);
+                boolean isNew = processReceivedEnvelope(envelopeBytes, hash);
+                if (isNew) {
+                    newEnvelopes++;
+                } else {
+                    existingEnvelopes++;
+                    // own envelope: synchronized, so it leaves the pending buffer
+                    if (pendingEnvelopes.remove(ownEnvelopePath(hash))) {
+                        inFlight.committed(hash);
+                    }
+                }
+            }
+
+            log.atInfo().setMessage("Block applied")
+                    .addKeyValue("block", blockNumber)
+                    .addKeyValue("new", newEnvelopes)
+                    .addKeyValue("existing", existingEnvelopes)
+                    .addKeyValue("envelopes", orderedEnvelopes.size())
+                    .log();
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to process block {}: {}", blockNumber, e.getMessage());
+            return false;
+        }
+    }
+
+    private static String ownEnvelopePath(String hash) {
+        return Paths.get(Config.getEnvelopesDir()).resolve(hash + ".json").toString();
+    }
+
+    private boolean processReceivedEnvelope(ByteString envelopeBytes, String hash) {
+        try {
+            String filename = hash + ".json";
+            Path outDir = Paths.get(Config.getEnvelopesDir());
+            Files.createDirectories(outDir);
+            Path filePath = outDir.resolve(filename);
+
+            boolean isNew = false;
+            // our own upload: its bytes came from this file, so there is nothing to compare
+            boolean fromOutbox = outbox.remove(hash) != null;
+
+            // Check if already exists
+            if (Files.exists(filePath)) {
+                if (!fromOutbox) {
+                    byte[] existing = Files.readAllBytes(filePath);
+                    String existingHash = HashUtils.sha256Hex(existing);
+                    if (!existingHash.equals(hash)) {
+                        log.warn("Hash mismatch for {}: expected={}, found={}", filename, hash, existingHash);
+                        return false;
+                    }
+                }
+            } else {
+                try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                    for (ByteBuffer chunk : envelopeBytes.asReadOnlyByteBufferList()) {
+                        while (chunk.hasRemaining()) {
+                            channel.write(chunk);
+                        }
+                    }
+                }
+                isNew = true;
+                log.debug("Stored new envelope: {}", filename);
+            }
+
+            // Parse and update DB
+            Envelope envelope = Envelope.fromByteString(envelopeBytes);
+
+            Metadata metadata = envelope.getMetadata();
+            String signer = metadata.getSignerNodeId();
+            long nodeSeq = metadata.getNodeSequenceNumber();
+            String prevHash = metadata.getPrevEnvelopeHash();
+            String metadataTimestamp = metadata.getMetadataTimestamp();
+
+            try {
+                if (isNew) {
+                    db.insertReport(hash, filePath.toString(), signer, nodeSeq, db.getGlobalSeqFromLastSyncedReport() + 1, metadataTimestamp, prevHash);
+                } else {
+                    db.updateReport(hash, db.getGlobalSeqFromLastSyncedReport() + 1);
+                    isNew = false;
+                    log.debug("Envelope already exists: {}", filename);
+                }
+            } catch (SQLException e) {
+                // Unique constraint - already exists
+            }
+
+            // Update node state
+            try {
+                db.upsertNodeState(signer, nodeSeq, hash);
+            } catch (Exception e) {
+                log.warn("Failed to update node state for {}: {}", signer, e.getMessage());
+            }
+
+            return isNew;
+
+        } catch (Exception e) {
+            log.warn("Failed to process envelope {}: {}", hash, e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Handles all messages from the server.
      */
     private class ServerResponseHandler implements StreamObserver<ServerMessage> {
 
+        // the server rejected the buffer itself: the node's unsynced reports cannot be synchronized
+        private static final Set<String> INVALID_BUFFER_CODES = Set.of(
+                "INVALID_SIGNATURE", "INVALID_MERKLE_ROOT", "INVALID_ENVELOPE_CHAIN", "NODE_ID_MISMATCH", "VERIFICATION_ERROR");
+
         private final DatabaseService db;
-        VerificationsHandler verificationsHandler;
         private PendingBlock pendingBlock;
+        // unsynced reports are rolled back once no earlier block or round is still pending
+        private boolean cleanupDeferred = false;
+        // while missed blocks are fetched, server messages wait here and are handled in order afterwards
+        private boolean catchingUp = false;
+        private final Deque<Runnable> deferred = new ArrayDeque<>();
 
         public ServerResponseHandler(DatabaseService db) {
             this.db = db;
-            this.verificationsHandler = new VerificationsHandler(db);
             this.pendingBlock = null;
         }
 
         @Override
-        public void onNext(ServerMessage serverMessage) {
+        public synchronized void onNext(ServerMessage serverMessage) {
+            if (catchingUp) {
+                deferred.add(() -> handle(serverMessage));
+                return;
+            }
+            handle(serverMessage);
+        }
+
+        private void handle(ServerMessage serverMessage) {
             try {
                 if (serverMessage.hasRequestBuffer()) {
                     handleRequestBuffer(serverMessage.getRequestBuffer());
@@ -329,7 +758,6 @@ public class PersistentSyncClient {
                     String message = serverMessage.getAck().getMessage();
                     checkForCommit(serverMessage, message);
                     // System.out.println("Server ACK: " + message);
-                    cancelTimeoutMonitoring("Server ACK received in time");
                 } else if (serverMessage.hasError()) {
                     handleError(serverMessage.getError());
                 }
@@ -343,9 +771,25 @@ public class PersistentSyncClient {
                 if (message.startsWith("commit")) {
                     boolean success = serverMessage.getAck().getSuccess();
                     if (success) {
-                        commitBlock();
-                    } else if (pendingBlock != null && message.split(" ")[1].equals(new String(pendingBlock.root)))
-                        pendingBlock = null;
+                        Span span = tracer.spanBuilder("client.commit")
+                                .setParent(Tracing.parent(serverMessage.getAck().getTraceParent()))
+                                .startSpan();
+                        try {
+                            commitBlock();
+                        } finally {
+                            span.end();
+                        }
+                        // the server can now finalize the rounds it held behind this block
+                        awaitingCommit = false;
+                        rearmRoundTimeouts();
+                    } else {
+                        if (pendingBlock != null && message.split(" ")[1].equals(HashUtils.bytesToHex(pendingBlock.root)))
+                            pendingBlock = null;
+                        // the server rolls back every uncommitted round after a nack, so resend everything
+                        inFlight.releaseAll().forEach(outbox::remove);
+                        cancelTimeoutMonitoring("Block failed, rounds restarted");
+                        runDeferredCleanup();
+                    }
                 }
             }
             catch (Exception e) {
@@ -354,11 +798,12 @@ public class PersistentSyncClient {
         }
 
         private void handleRequestBuffer(RequestBuffer request) {
-            // Cancel timeout monitoring - server answered in time
-            cancelTimeoutMonitoring("Server buffer request received in time");
             String roundId = request.getRoundId();
+            // the server answered our sync request with this round
+            cancelRoundTimeout(initiatingRoundId);
+            long requestedAt = System.currentTimeMillis();
             //System.out.println("Server requested buffer for round: " + roundId + " - sending " + pendingEnvelopes.size() + " envelopes");
-            System.out.println("\n  <- Server requested buffer for round: " + roundId);
+            log.debug("Server requested buffer for round {}", roundId);
 
             // // MONITOR SIMULATION: simulate dropped outgoing messages for nodeB (receives but doesn't send)
             // if (Config.getNodeSelfId().equals("nodeB")) {
@@ -367,31 +812,47 @@ public class PersistentSyncClient {
             //     return; // don't send response, simulating network drop
             // }
 
+            Span span = tracer.spanBuilder("client.upload")
+                    .setParent(Tracing.parent(request.getTraceParent()))
+                    .setAttribute("round.id", roundId)
+                    .startSpan();
             try {
                 // Build BufferUpload
                 BufferUpload.Builder builder = BufferUpload.newBuilder()
-                        .setNodeId(Config.getNodeSelfId());
+                        .setNodeId(Config.getNodeSelfId())
+                        .setRoundId(roundId)
+                        .setTraceParent(traceParent(span));
 
-                List<byte[]> envelopesToSend = new ArrayList<>();
+                List<ByteString> envelopesToSend = new ArrayList<>();
+                List<byte[]> envelopeHashes = new ArrayList<>();
+                Map<String, String> uploaded = new LinkedHashMap<>();
 
-                // Add MAX_ENVELOPES_TO_SEND_PER_SYNC pending envelopes
+                // Add MAX_ENVELOPES_TO_SEND_PER_SYNC pending envelopes, skipping the ones already
+                // uploaded in a round that is still waiting for its commit (rounds are pipelined)
                 for (String pathStr : pendingEnvelopes) { // first-in, first-out, so buffer order is preserved when sending
+                    if (inFlight.contains(pathStr)) {
+                        continue;
+                    }
                     if (envelopesToSend.size() >= Config.MAX_ENVELOPES_TO_SEND_PER_SYNC) {
                         break; // limit number of envelopes per sync
                     }
                     try {
                         Path path = Paths.get(pathStr);
-                        byte[] envelopeBytes = Files.readAllBytes(path);
-                        builder.addEnvelopes(ByteString.copyFrom(envelopeBytes));
+                        // the array is never touched again, so wrapping it is safe and saves a copy
+                        ByteString envelopeBytes = UnsafeByteOperations.unsafeWrap(Files.readAllBytes(path));
+                        byte[] envelopeHash = HashUtils.sha256(envelopeBytes);
+                        builder.addEnvelopes(envelopeBytes);
                         envelopesToSend.add(envelopeBytes);
+                        envelopeHashes.add(envelopeHash);
+                        uploaded.put(HashUtils.bytesToHex(envelopeHash), pathStr);
                     } catch (Exception e) {
-                        System.err.println("Failed to read envelope " + pathStr + ": " + e.getMessage());
+                        log.warn("Failed to read envelope {}: {}", pathStr, e.getMessage());
                     }
                 }
 
                 PrivateKey signPrivateKey = KeyLoader.loadPrivateKeyFromKeystore(Config.ED_PRIVATE_KEY_ALIAS, Config.getKeystorePath(), Config.KEYSTORE_PASSWORD);
                 // Compute and sign Merkle root
-                byte[] merkleRoot = MerkleUtils.computeMerkleRoot(envelopesToSend);
+                byte[] merkleRoot = MerkleUtils.computeMerkleRootFromLeafHashes(envelopeHashes);
                 // System.out.println("Computed Merkle root for buffer: " + HashUtils.bytesToHex(merkleRoot));
                 byte[] signedMerkleRoot = SecureDocumentProtocol.signData(merkleRoot, signPrivateKey);
                 // System.out.println("Signed Merkle root for buffer: " + HashUtils.bytesToHex(signedMerkleRoot));
@@ -405,33 +866,109 @@ public class PersistentSyncClient {
                         .build();
 
                 requestObserver.onNext(msg);
+                inFlight.add(roundId, uploaded);
+                for (int i = 0; i < envelopesToSend.size(); i++) {
+                    outbox.put(HashUtils.bytesToHex(envelopeHashes.get(i)), envelopesToSend.get(i));
+                }
 
-                // Start timeout monitoring for this round
-                startTimeoutMonitoring(roundId);
-                System.out.println("  -> Buffer sent (" + builder.getEnvelopesCount() + " envelopes)");
+                // Start timeout monitoring for this round: the server's deadline for this node
+                // (what is left of it) plus the time it needs to finalize the round
+                if (request.getDeadlineMs() > 0) {
+                    long left = request.getDeadlineMs() - (System.currentTimeMillis() - requestedAt);
+                    startTimeoutMonitoring(roundId, Math.max(0, left) + Config.SYNC_TIMEOUT_MARGIN_MS);
+                } else {
+                    startTimeoutMonitoring(roundId);
+                }
+                log.atDebug().setMessage("Buffer sent")
+                        .addKeyValue("round_id", roundId)
+                        .addKeyValue("envelopes", builder.getEnvelopesCount())
+                        .log();
+                span.setAttribute("envelopes", builder.getEnvelopesCount());
 
             } catch (Exception e) {
-                System.err.println("[ERROR] Failed to send buffer: " + e.getMessage());
+                log.error("Failed to send buffer: {}", e.getMessage());
+                span.setStatus(StatusCode.ERROR, "send failed");
+            } finally {
+                span.end();
             }
         }
 
         private void handleSyncResult(SyncResult result) {
-            // Cancel timeout monitoring - sync completed successfully
-            cancelTimeoutMonitoring("Sync result received in time");
-
             String roundId = result.getRoundId();
-            List<byte[]> orderedEnvelopes = new ArrayList<>();
-            for (int i = 0; i < result.getOrderedEnvelopesCount(); i++) {
-                orderedEnvelopes.add(result.getOrderedEnvelopes(i).toByteArray());
+            // this round's timeout only; later rounds keep theirs
+            long sentAt = cancelRoundTimeout(roundId);
+            if (sentAt > 0) {
+                // buffer sent until the round's block arrived
+                Metrics.record("deathnode.client.round.wait", System.currentTimeMillis() - sentAt, TimeUnit.MILLISECONDS);
             }
+            // acked or nacked, the block stays in the server's pipeline until its commit decision
+            awaitingCommit = true;
+
+            List<ByteString> orderedEnvelopes = result.getDelta() ? rebuildFromDelta(result) : result.getOrderedEnvelopesList();
+            long blockNumber = result.getBlockNumber();
+
+            log.atDebug().setMessage("Received SyncResult")
+                    .addKeyValue("round_id", roundId)
+                    .addKeyValue("block", blockNumber)
+                    .addKeyValue("envelopes", orderedEnvelopes.size())
+                    .addKeyValue("own_by_reference", result.getOwnEnvelopeRefsCount())
+                    .log();
+
+            // Missed blocks in between (e.g. after a reconnect): fetch them before verifying this one
+            if (pendingBlock == null && blockNumber > nextLocalBlock()) {
+                startCatchUp(() -> verifySyncResult(result, orderedEnvelopes));
+                return;
+            }
+            verifySyncResult(result, orderedEnvelopes);
+        }
+
+        /**
+         * Run catch-up on its executor; messages arriving meanwhile are deferred, and {@code next}
+         * (the verification of the block that revealed the gap) runs first once it is done.
+         */
+        private void startCatchUp(Runnable next) {
+            catchingUp = true;
+            deferred.addFirst(next);
+            try {
+                catchUpExecutor.execute(() -> {
+                    try {
+                        PersistentSyncClient.this.catchUp();
+                    } finally {
+                        catchUpDone();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // shutting down
+                catchingUp = false;
+                deferred.clear();
+            }
+        }
+
+        private synchronized void catchUpDone() {
+            catchingUp = false;
+            Runnable next;
+            while (!catchingUp && (next = deferred.poll()) != null) {
+                try {
+                    next.run();
+                } catch (Exception e) {
+                    log.warn("Failed to handle deferred server message: {}", e.getMessage());
+                }
+            }
+        }
+
+        private void verifySyncResult(SyncResult result, List<ByteString> orderedEnvelopes) {
+            String roundId = result.getRoundId();
             long blockNumber = result.getBlockNumber();
             byte[] blockRoot = result.getBlockRoot().toByteArray();
             byte[] signedBlockRoot = result.getSignedBlockRoot().toByteArray();
             List<SignedBufferRoot> perNodeSignedBufferRoots = result.getPerNodeSignedBufferRootsList();
             byte[] prevBlockRoot = result.getPrevBlockRoot().toByteArray();
 
-            System.out.println("  <- Received SyncResult (" + result.getOrderedEnvelopesCount() + " envelopes)");
-
+            Span span = tracer.spanBuilder("client.verify")
+                    .setParent(Tracing.parent(result.getTraceParent()))
+                    .setAttribute("round.id", roundId)
+                    .setAttribute("block.number", blockNumber)
+                    .startSpan();
             VerificationsHandler.VerificationsResult verificationsResult = verificationsHandler.performAllVerifications(
                     roundId,
                     orderedEnvelopes,
@@ -450,15 +987,19 @@ public class PersistentSyncClient {
              */
 
             boolean success = verificationsResult.isSuccess();
-            sendBlockAck(success);
             if (!success) {
-                System.out.println("[X] Block failed verification. Voiding round " + roundId);
+                span.setStatus(StatusCode.ERROR, verificationsResult.getErrorCode());
+            }
+            sendBlockAck(success, blockNumber, traceParent(span));
+            span.end();
+            if (!success) {
+                log.warn("Block {} failed verification, voiding round {}", blockNumber, roundId);
                 PersistentSyncClient.this.currentRoundId = null;
                 PersistentSyncClient.this.completeSyncRound();
                 return;
             }
 
-            pendingBlock = new PendingBlock(result, blockNumber, blockRoot);
+            pendingBlock = new PendingBlock(orderedEnvelopes, blockNumber, blockRoot);
             // System.out.println("Pending commit...");
             
             // Signal sync completion
@@ -466,119 +1007,128 @@ public class PersistentSyncClient {
 
         }
 
-        private void commitBlock() {
-            SyncResult result = pendingBlock.result;
-            long blockNumber = pendingBlock.number;
-            byte[] blockRoot = pendingBlock.root;
-
-            try {
-                db.upsertBlockState(blockNumber, HashUtils.bytesToHex(blockRoot));
-            } catch (SQLException e) {
-                System.err.println("Failed to update block state in DB: " + e.getMessage());
+        /**
+         * Rebuild the full ordered list of a delta result: own envelopes come from the outbox,
+         * the others fill the remaining positions in order. A missing own envelope leaves an
+         * empty entry, which then fails the block Merkle root check.
+         */
+        private List<ByteString> rebuildFromDelta(SyncResult result) {
+            int total = result.getOrderedEnvelopesCount() + result.getOwnEnvelopeRefsCount();
+            ByteString[] ordered = new ByteString[total];
+
+            for (OwnEnvelopeRef ref : result.getOwnEnvelopeRefsList()) {
+                String hash = HashUtils.bytesToHex(ref.getEnvelopeHash().toByteArray());
+                ByteString own = outbox.get(hash);
+                if (ref.getIndex() >= total) {
+                    log.warn("Delta SyncResult references position {} out of {}", ref.getIndex(), total);
+                    continue;
+                }
+                if (own == null) {
+                    log.warn("Delta SyncResult references unknown own envelope {}", hash);
+                }
+                ordered[ref.getIndex()] = (own != null) ? own : ByteString.EMPTY;
             }
 
-            try {
-                int newEnvelopes = 0;
-                int existingEnvelopes = 0;
-
-                // Process each ordered envelope
-                for (int i = 0; i < result.getOrderedEnvelopesCount(); i++) {
-                    byte[] envelopeBytes = result.getOrderedEnvelopes(i).toByteArray();
-
-                    boolean isNew = processReceivedEnvelope(envelopeBytes);
-                    if (isNew) newEnvelopes++;
-                    else existingEnvelopes++;
+            int next = 0;
+            for (ByteString other : result.getOrderedEnvelopesList()) {
+                while (next < total && ordered[next] != null) {
+                    next++;
                 }
+                if (next < total) {
+                    ordered[next++] = other;
+                }
+            }
 
-                // Poll all synchronized reports
-                for (int i = 0; i < existingEnvelopes; i++) {
-                    pendingEnvelopes.poll(); // Remove from pending buffer
+            for (int i = 0; i < total; i++) {
+                if (ordered[i] == null) {
+                    ordered[i] = ByteString.EMPTY;
                 }
+            }
+            return Arrays.asList(ordered);
+        }
 
-                currentRoundId = null;
+        private long nextLocalBlock() {
+            try {
+                DatabaseService.LastBlockInfo last = db.getLastBlockInfo();
+                return (last == null) ? 1 : last.getBlockNumber() + 1;
+            } catch (SQLException e) {
+                return Long.MAX_VALUE; // unknown: let the block verification report it
+            }
+        }
 
-                System.out.println("Sync completed: " + newEnvelopes + " new, " + existingEnvelopes + " existing envelopes, total " + result.getOrderedEnvelopesCount());
+        private void commitBlock() {
+            if (pendingBlock == null) {
+                // committed without this node's ack (it nacked, or the block arrived late):
+                // fetched by catch-up before the next block is verified
+                sendPendingStatus();
+                return;
+            }
+            if (applyBlock(pendingBlock.envelopes, pendingBlock.number, pendingBlock.root)) {
+                currentRoundId = null;
                 PersistentSyncClient.this.completeSyncRound();
-            } catch (Exception e) {
-                System.err.println("Failed to process SyncResult: " + e.getMessage());
             }
             pendingBlock = null;
-
+            runDeferredCleanup();
+            // envelopes buffered during the round still need one
+            sendPendingStatus();
         }
 
-        private boolean processReceivedEnvelope(byte[] envelopeBytes) {
-            String hash = HashUtils.sha256Hex(envelopeBytes);
-            try {
-                String filename = hash + ".json";
-                Path outDir = Paths.get(Config.getEnvelopesDir());
-                Files.createDirectories(outDir);
-                Path filePath = outDir.resolve(filename);
-
-                boolean isNew = false;
-
-                // Check if already exists
-                if (Files.exists(filePath)) {
-                    byte[] existing = Files.readAllBytes(filePath);
-                    String existingHash = HashUtils.sha256Hex(existing);
-                    if (!existingHash.equals(hash)) {
-                        System.err.println("Hash mismatch for " + filename + ": expected=" + hash + ", found=" + existingHash);
-                        return false;
+        /**
+         * An error from the server. Errors about a round's buffer release that round (and the
+         * rounds uploaded after it); a buffer the server found invalid also rolls back the
+         * unsynced reports, but only once the blocks and rounds before it are settled, so
+         * reports already in a pending block are not deleted. Other errors are only logged.
+         */
+        private void handleError(Error error) {
+            String roundId = error.getRoundId();
+            if (!roundId.isEmpty()) {
+                cancelRoundTimeoutsFrom(roundId);
+            } else {
+                // the sync request itself was refused
+                cancelRoundTimeout(initiatingRoundId);
+            }
+            log.atError().setMessage("Server error")
+                    .addKeyValue("code", error.getCode())
+                    .addKeyValue("round_id", roundId)
+                    .addKeyValue("error", error.getMessage())
+                    .log();
+
+            if (!roundId.isEmpty()) {
+                if (inFlight.isTracked(roundId)) {
+                    // resend its envelopes in a later round
+                    releaseRound(roundId);
+                    if (INVALID_BUFFER_CODES.contains(error.getCode())) {
+                        cleanupDeferred = true;
+                        runDeferredCleanup();
                     }
                 } else {
-                    Files.write(filePath, envelopeBytes, StandardOpenOption.CREATE_NEW);
-                    isNew = true;
-                    System.out.println("Stored new envelope: " + filename);
+                    log.debug("Round {} already released or committed", roundId);
                 }
-
-                // Parse and update DB
-                String json = new String(envelopeBytes, StandardCharsets.UTF_8);
-                JsonObject jsonObj = JsonParser.parseString(json).getAsJsonObject();
-                Envelope envelope = Envelope.fromJson(jsonObj);
-
-                Metadata metadata = envelope.getMetadata();
-                String signer = metadata.getSignerNodeId();
-                long nodeSeq = metadata.getNodeSequenceNumber();
-                String prevHash = metadata.getPrevEnvelopeHash();
-                String metadataTimestamp = metadata.getMetadataTimestamp();
-
-                try {
-                    if (isNew) {
-                        db.insertReport(hash, filePath.toString(), signer, nodeSeq, db.getGlobalSeqFromLastSyncedReport() + 1, metadataTimestamp, prevHash);
-                    } else {
-                        db.updateReport(hash, db.getGlobalSeqFromLastSyncedReport() + 1);
-                        isNew = false;
-                        System.out.println("Envelope already exists: " + filename);
-                    }
-                } catch (SQLException e) {
-                    // Unique constraint - already exists
+                if (roundId.equals(PersistentSyncClient.this.currentRoundId)) {
+                    PersistentSyncClient.this.currentRoundId = null;
                 }
-
-                // Update node state
-                try {
-                    db.upsertNodeState(signer, nodeSeq, hash);
-                } catch (Exception e) {
-                    System.out.println("Failed to update node state for " + signer + ": " + e.getMessage());
-                }
-
-                return isNew;
-
-            } catch (Exception e) {
-                System.err.println("Failed to process envelope " + hash + ": " + e.getMessage());
-                return false;
             }
+            // Signal sync completion
+            PersistentSyncClient.this.completeSyncRound();
         }
 
-        private void handleError(Error error) {
-            cancelTimeoutMonitoring("Server error received");
-            System.err.println("Server error [" + error.getCode() + "]: " + error.getMessage());
+        /**
+         * Roll back the unsynced reports after an invalid buffer, once no block is waiting
+         * for its commit and no other round is in flight.
+         */
+        private void runDeferredCleanup() {
+            if (!cleanupDeferred || pendingBlock != null || !inFlight.isEmpty()) {
+                return;
+            }
+            cleanupDeferred = false;
             try {
-                PersistentSyncClient.this.currentRoundId = null;
                 cleanupService.cleanupAllUnsyncedReports();
+                // every pending envelope was unsynced, so they are all gone
+                pendingEnvelopes.clear();
+                outbox.clear();
             } catch (SQLException e) {
-                System.err.println("Failed to cleanup unsynced reports after server error: " + e.getMessage());
+                log.error("Failed to cleanup unsynced reports after server error: {}", e.getMessage());
             }
-            // Signal sync completion
-            PersistentSyncClient.this.completeSyncRound();
         }
 
         private void sendError(String code, String message) {
@@ -594,9 +1144,11 @@ public class PersistentSyncClient {
             PersistentSyncClient.this.requestObserver.onNext(msg);
         }
 
-        private void sendBlockAck(boolean ack) {
+        private void sendBlockAck(boolean ack, long blockNumber, String traceParent) {
             Ack blockAck = Ack.newBuilder()
                     .setSuccess(ack)
+                    .setBlockNumber(blockNumber)
+                    .setTraceParent(traceParent)
                     .build();
 
             ClientMessage msg = ClientMessage.newBuilder()
@@ -609,18 +1161,20 @@ public class PersistentSyncClient {
         @Override
         public void onError(Throwable t) {
             cancelTimeoutMonitoring("Server error received");
-            System.err.println("gRPC stream error: " + t.getMessage());
+            log.warn("gRPC stream error: {}", t.getMessage());
             connected = false;
+            scheduleReconnect();
         }
 
         @Override
         public void onCompleted() {
             cancelTimeoutMonitoring("Server closed connection");
-            System.out.println("Server closed connection");
+            log.info("Server closed connection");
             connected = false;
+            scheduleReconnect();
         }
 
-        private record PendingBlock(SyncResult result, long number, byte[] root) {
+        private record PendingBlock(List<ByteString> envelopes, long number, byte[] root) {
         }
     }
 }
\ No newline at end of file
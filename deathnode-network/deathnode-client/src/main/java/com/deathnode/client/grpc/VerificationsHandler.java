@@ -1,6 +1,7 @@
 package com.deathnode.client.grpc;
 
 import com.deathnode.client.config.Config;
+import com.deathnode.client.config.Metrics;
 import com.deathnode.client.service.DatabaseService;
 import com.deathnode.common.grpc.SignedBufferRoot;
 import com.deathnode.common.model.Envelope;
@@ -11,57 +12,113 @@ import com.deathnode.tool.SecureDocumentProtocol;
 import com.deathnode.tool.util.KeyLoader;
 import com.deathnode.client.service.DatabaseService.LastBlockInfo;
 import com.deathnode.client.service.DatabaseService.ReportRow;
+import com.google.protobuf.ByteString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.security.PublicKey;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 public class VerificationsHandler {
 
+    private static final Logger log = LoggerFactory.getLogger(VerificationsHandler.class);
+
     DatabaseService db;
 
     public VerificationsHandler(DatabaseService db) {
         this.db = db;
     }
 
-    public VerificationsResult performAllVerifications(String roundId, List<byte[]> orderedEnvelopes, long blockNumber, byte[] blockRoot, byte[] signedBlockRoot, List<SignedBufferRoot> perNodeSignedBufferRoots, byte[] prevBlockRoot) {
+    public VerificationsResult performAllVerifications(String roundId, List<ByteString> orderedEnvelopes, long blockNumber, byte[] blockRoot, byte[] signedBlockRoot, List<SignedBufferRoot> perNodeSignedBufferRoots, byte[] prevBlockRoot) {
+        long start = System.nanoTime();
+        VerificationsResult result = verifyBlock(roundId, orderedEnvelopes, blockNumber, blockRoot, signedBlockRoot, perNodeSignedBufferRoots, prevBlockRoot);
+        long elapsed = System.nanoTime() - start;
+        Metrics.record("deathnode.client.block.verify", elapsed, TimeUnit.NANOSECONDS, "kind", "live", "outcome", result.isSuccess() ? "ok" : "failed");
+        logVerified("live", roundId, blockNumber, orderedEnvelopes.size(), result, elapsed);
+        return result;
+    }
+
+    private VerificationsResult verifyBlock(String roundId, List<ByteString> orderedEnvelopes, long blockNumber, byte[] blockRoot, byte[] signedBlockRoot, List<SignedBufferRoot> perNodeSignedBufferRoots, byte[] prevBlockRoot) {
         try {
-            System.out.println("\n[VERIFICATION PIPELINE] Round " + roundId);
-            
             String serverSigningPublicKeyPEM = db.getSignPubKey(Config.SERVER_NODE_ID);
             PublicKey serverSigningPublicKey = KeyLoader.pemStringToPublicKey(serverSigningPublicKeyPEM, Config.SIGNING_KEYS_ALG);
             if (!SecureDocumentProtocol.verifySignature(blockRoot, signedBlockRoot, serverSigningPublicKey)) {
-                System.out.println("  [X] Step 1: Block signature verification FAILED");
+                log.warn("Block signature verification failed for block {}", blockNumber);
                 return new VerificationsResult(false, "INVALID_SIGNATURE", "Buffer signature verification failed");
             }
-            System.out.println("  [V] Step 1: Block signature verified");
 
             LastBlockInfo lastBlockInfo = db.getLastBlockInfo();
             if (!verifyPreviousBlockMatch(lastBlockInfo, blockNumber, prevBlockRoot)) {
-                System.out.println("  [X] Step 2: Previous block match verification FAILED");
+                log.warn("Previous block match verification failed for block {}", blockNumber);
                 return new VerificationsResult(false, "PREVIOUS_BLOCK_MISMATCH", "Previous block info does not match last known block");
             }
-            System.out.println("  [V] Step 2: Previous block match verified");
 
-            if (!MerkleUtils.verifyMerkleRoot(orderedEnvelopes, blockRoot)) {
-                System.out.println("  [X] Step 3: Block Merkle root verification FAILED");
+            if (!MerkleUtils.verifyMerkleRootOfByteStrings(orderedEnvelopes, blockRoot)) {
+                log.warn("Block Merkle root verification failed for block {}", blockNumber);
                 return new VerificationsResult(false, "INVALID_MERKLE_ROOT", "Block Merkle root verification failed");
             }
-            System.out.println("  [V] Step 3: Block Merkle root verified");
 
             if (!verifyNodesBufferSignatures(perNodeSignedBufferRoots)) {
-                System.out.println("  [X] Step 4: Node buffer signatures verification FAILED");
+                log.warn("Node buffer signatures verification failed for block {}", blockNumber);
                 return new VerificationsResult(false, "INVALID_NODE_BUFFER_ROOT_SIGNATURE", "One or more node buffer root signatures invalid");
             }
-            System.out.println("  [V] Step 4: All node buffer signatures verified");
 
             List<String> nodeIds = perNodeSignedBufferRoots.stream().map(SignedBufferRoot::getNodeId).toList();
             if (!verifyPerNodeEnvelopeChain(nodeIds, orderedEnvelopes)) {
-                System.out.println("  [X] Step 5: Per-node envelope chain verification FAILED");
+                log.warn("Per-node envelope chain verification failed for block {}", blockNumber);
+                return new VerificationsResult(false, "INVALID_ENVELOPE_CHAIN", "Per-node envelope chain verification failed for one or more nodes");
+            }
+        } catch (Exception e) {
+            return new VerificationsResult(false, "VERIFICATION_ERROR",
+                    "Exception during verifications: " + e.getMessage());
+        }
+        return new VerificationsResult(true, null, null);
+    }
+
+    /**
+     * Verify a committed block fetched during catch-up. Same checks as a live SyncResult, except
+     * for the per-node buffer signatures, which the server does not keep; envelope chains are
+     * checked for every signer in the block.
+     */
+    public VerificationsResult performCatchUpVerifications(long blockNumber, List<ByteString> orderedEnvelopes, byte[] blockRoot, byte[] signedBlockRoot, byte[] prevBlockRoot) {
+        long start = System.nanoTime();
+        VerificationsResult result = verifyCatchUpBlock(blockNumber, orderedEnvelopes, blockRoot, signedBlockRoot, prevBlockRoot);
+        long elapsed = System.nanoTime() - start;
+        Metrics.record("deathnode.client.block.verify", elapsed, TimeUnit.NANOSECONDS, "kind", "catch-up", "outcome", result.isSuccess() ? "ok" : "failed");
+        logVerified("catch-up", null, blockNumber, orderedEnvelopes.size(), result, elapsed);
+        return result;
+    }
+
+    private VerificationsResult verifyCatchUpBlock(long blockNumber, List<ByteString> orderedEnvelopes, byte[] blockRoot, byte[] signedBlockRoot, byte[] prevBlockRoot) {
+        try {
+            String serverSigningPublicKeyPEM = db.getSignPubKey(Config.SERVER_NODE_ID);
+            PublicKey serverSigningPublicKey = KeyLoader.pemStringToPublicKey(serverSigningPublicKeyPEM, Config.SIGNING_KEYS_ALG);
+            if (!SecureDocumentProtocol.verifySignature(blockRoot, signedBlockRoot, serverSigningPublicKey)) {
+                log.warn("Block signature verification failed for block {}", blockNumber);
+                return new VerificationsResult(false, "INVALID_SIGNATURE", "Block signature verification failed");
+            }
+
+            if (!verifyPreviousBlockMatch(db.getLastBlockInfo(), blockNumber, prevBlockRoot)) {
+                log.warn("Previous block match verification failed for block {}", blockNumber);
+                return new VerificationsResult(false, "PREVIOUS_BLOCK_MISMATCH", "Previous block info does not match last known block");
+            }
+
+            if (!MerkleUtils.verifyMerkleRootOfByteStrings(orderedEnvelopes, blockRoot)) {
+                log.warn("Block Merkle root verification failed for block {}", blockNumber);
+                return new VerificationsResult(false, "INVALID_MERKLE_ROOT", "Block Merkle root verification failed");
+            }
+
+            LinkedHashSet<String> signerIds = new LinkedHashSet<>();
+            for (ByteString envelope : orderedEnvelopes) {
+                signerIds.add(Envelope.fromByteString(envelope).getMetadata().getSignerNodeId());
+            }
+            if (!verifyPerNodeEnvelopeChain(List.copyOf(signerIds), orderedEnvelopes)) {
+                log.warn("Per-node envelope chain verification failed for block {}", blockNumber);
                 return new VerificationsResult(false, "INVALID_ENVELOPE_CHAIN", "Per-node envelope chain verification failed for one or more nodes");
             }
-            System.out.println("  [V] Step 5: Per-node envelope chains verified");
-            System.out.println("  [V] ALL VERIFICATIONS PASSED\n");
         } catch (Exception e) {
             return new VerificationsResult(false, "VERIFICATION_ERROR",
                     "Exception during verifications: " + e.getMessage());
@@ -69,21 +126,33 @@ public class VerificationsHandler {
         return new VerificationsResult(true, null, null);
     }
 
+    private static void logVerified(String kind, String roundId, long blockNumber, int envelopes, VerificationsResult result, long elapsedNanos) {
+        log.atDebug().setMessage("Block verified")
+                .addKeyValue("kind", kind)
+                .addKeyValue("round_id", roundId)
+                .addKeyValue("block", blockNumber)
+                .addKeyValue("envelopes", envelopes)
+                .addKeyValue("outcome", () -> result.isSuccess() ? "ok" : result.getErrorCode())
+                .addKeyValue("duration_us", () -> TimeUnit.NANOSECONDS.toMicros(elapsedNanos))
+                .log();
+    }
+
     private boolean verifyPreviousBlockMatch(LastBlockInfo lastBlockInfo, long blockNumber, byte[] prevBlockRoot) {
         long expectedBlockNumber = (lastBlockInfo == null) ? 1 : lastBlockInfo.getBlockNumber() + 1;
         byte[] expectedPrevBlockRoot = (lastBlockInfo == null) ? null : HashUtils.hexToBytes(lastBlockInfo.getBlockRoot());
         if (blockNumber != expectedBlockNumber) {
-            System.out.println(" -> Previous block number mismatch: expected " + expectedBlockNumber + ", got " + blockNumber);
+            log.warn("Previous block number mismatch: expected {}, got {}", expectedBlockNumber, blockNumber);
             return false;
         }
         if (expectedPrevBlockRoot == null) {
             if (prevBlockRoot != null && prevBlockRoot.length > 0) {
-                System.out.println(" -> Previous block root mismatch: expected null, got " + HashUtils.bytesToHex(prevBlockRoot));
+                log.warn("Previous block root mismatch: expected null, got {}", HashUtils.bytesToHex(prevBlockRoot));
                 return false;
             }
         } else {
             if (prevBlockRoot == null || prevBlockRoot.length == 0 || !Arrays.equals(expectedPrevBlockRoot, prevBlockRoot)) {
-                System.out.println(" -> Previous block root mismatch: expected " + HashUtils.bytesToHex(expectedPrevBlockRoot) + ", got " + (prevBlockRoot == null || prevBlockRoot.length == 0 ? "null" : HashUtils.bytesToHex(prevBlockRoot)));
+                log.warn("Previous block root mismatch: expected {}, got {}", HashUtils.bytesToHex(expectedPrevBlockRoot),
+                        (prevBlockRoot == null || prevBlockRoot.length == 0) ? "null" : HashUtils.bytesToHex(prevBlockRoot));
                 return false;
             }
         }
@@ -99,16 +168,16 @@ public class VerificationsHandler {
             byte[] signedBufferRoot = sbr.getSignedBufferRoot().toByteArray();
 
             if (!SecureDocumentProtocol.verifySignature(bufferRoot, signedBufferRoot, nodeSigningPubKey)) {
-                System.out.println("Invalid buffer root signature from node " + nodeId);
+                log.warn("Invalid buffer root signature from node {}", nodeId);
                 return false;
             }
         }
         return true;
     }
 
-    private boolean verifyPerNodeEnvelopeChain(List<String> nodeIds, List<byte[]> orderedEnvelopes) {
+    private boolean verifyPerNodeEnvelopeChain(List<String> nodeIds, List<ByteString> orderedEnvelopes) {
         List<Envelope> envelopes = orderedEnvelopes.stream()
-                .map(Envelope::fromBytes)
+                .map(Envelope::fromByteString)
                 .toList();  
         for (String nodeId : nodeIds) {
             List<Envelope> nodeEnvelopes = envelopes.stream()
@@ -127,7 +196,7 @@ public class VerificationsHandler {
         try {
             lastNodeSyncedReport = db.getLastSyncedReportOfNode(nodeId);
         } catch (Exception e) {
-            System.out.println("Error retrieving last report for node " + nodeId + ": " + e.getMessage());
+            log.warn("Error retrieving last report for node {}: {}", nodeId, e.getMessage());
             return false;
         }
         String lastHash = lastNodeSyncedReport != null ? lastNodeSyncedReport.envelopeHash : null;
@@ -138,14 +207,14 @@ public class VerificationsHandler {
             
             if ((lastHash == null && meta.getPrevEnvelopeHash() != null && !meta.getPrevEnvelopeHash().isEmpty()) || 
                 (lastHash != null && !lastHash.equals(meta.getPrevEnvelopeHash()))) {
-                System.out.println(" -> Envelope chain check failed for node " + nodeId +
-                        ": expected prev hash " + lastHash + ", got " + meta.getPrevEnvelopeHash());
+                log.warn("Envelope chain check failed for node {}: expected prev hash {}, got {}",
+                        nodeId, lastHash, meta.getPrevEnvelopeHash());
                 return false;
             }
 
             if (meta.getNodeSequenceNumber() != expectedSeq) {
-                System.out.println(" -> Envelope chain check failed for node " + nodeId +
-                        ": expected seq " + expectedSeq + ", got " + meta.getNodeSequenceNumber());
+                log.warn("Envelope chain check failed for node {}: expected seq {}, got {}",
+                        nodeId, expectedSeq, meta.getNodeSequenceNumber());
                 return false;
             }
 
@@ -29,7 +29,7 @@ public class ClientService {
 
     public ClientService(DatabaseService db) {
         this.db = db;
-        this.syncClient = new PersistentSyncClient(db, Config.SERVER_HOST, Config.SERVER_PORT);
+        this.syncClient = new PersistentSyncClient(db, Config.getServerAddresses());
         try {
             this.lastNodeSequenceNumber = new AtomicLong(db.getLastSequenceNumber());
         } catch (Exception e) {
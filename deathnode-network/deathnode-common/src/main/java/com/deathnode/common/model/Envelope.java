@@ -2,6 +2,11 @@ package com.deathnode.common.model;
 
 import com.deathnode.common.util.HashUtils;
 import com.google.gson.*;
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.Base64;
@@ -65,6 +70,17 @@ public class Envelope {
         return fromJson(o);
     }
 
+    /**
+     * Parse straight from the ByteString's bytes (streamed, no intermediate byte[] or String copy).
+     */
+    public static Envelope fromByteString(ByteString data) {
+        try (Reader reader = new InputStreamReader(data.newInput(), StandardCharsets.UTF_8)) {
+            return fromJson(JsonParser.parseReader(reader).getAsJsonObject());
+        } catch (IOException e) {
+            throw new JsonParseException("Failed to read envelope", e);
+        }
+    }
+
     public static Envelope read(Path file) throws Exception {
         byte[] data = Files.readAllBytes(file);
         return fromBytes(data);
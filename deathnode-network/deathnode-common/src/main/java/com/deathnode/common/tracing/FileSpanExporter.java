@@ -0,0 +1,112 @@
+package com.deathnode.common.tracing;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.EventData;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+
+/**
+ * Writes finished spans to a local file, one JSON object per line, so the traces of a
+ * run can be analyzed offline without a collector. Server and client files can be
+ * concatenated: spans of one round share the trace id.
+ */
+public class FileSpanExporter implements SpanExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    private final BufferedWriter writer;
+
+    public FileSpanExporter(Path file) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+        try {
+            for (SpanData span : spans) {
+                writer.write(toJson(span).toString());
+                writer.newLine();
+            }
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            log.atWarn().setMessage("Failed to write spans")
+                    .addKeyValue("spans", spans.size())
+                    .setCause(e)
+                    .log();
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode flush() {
+        try {
+            writer.flush();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    @Override
+    public synchronized CompletableResultCode shutdown() {
+        try {
+            writer.close();
+            return CompletableResultCode.ofSuccess();
+        } catch (IOException e) {
+            return CompletableResultCode.ofFailure();
+        }
+    }
+
+    private static JsonObject toJson(SpanData span) {
+        JsonObject json = new JsonObject();
+        json.addProperty("traceId", span.getTraceId());
+        json.addProperty("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            json.addProperty("parentSpanId", span.getParentSpanId());
+        }
+        json.addProperty("name", span.getName());
+        json.addProperty("service", span.getResource().getAttribute(SERVICE_NAME));
+        json.addProperty("startEpochNanos", span.getStartEpochNanos());
+        json.addProperty("durationMicros", (span.getEndEpochNanos() - span.getStartEpochNanos()) / 1000);
+        json.addProperty("status", span.getStatus().getStatusCode().name());
+        json.add("attributes", toJson(span.getAttributes()));
+
+        JsonArray events = new JsonArray();
+        for (EventData event : span.getEvents()) {
+            JsonObject eventJson = new JsonObject();
+            eventJson.addProperty("name", event.getName());
+            eventJson.addProperty("epochNanos", event.getEpochNanos());
+            eventJson.add("attributes", toJson(event.getAttributes()));
+            events.add(eventJson);
+        }
+        json.add("events", events);
+        return json;
+    }
+
+    private static JsonObject toJson(Attributes attributes) {
+        JsonObject json = new JsonObject();
+        attributes.forEach((key, value) -> json.addProperty(key.getKey(), String.valueOf(value)));
+        return json;
+    }
+}
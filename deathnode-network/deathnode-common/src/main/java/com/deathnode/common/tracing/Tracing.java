@@ -0,0 +1,91 @@
+package com.deathnode.common.tracing;
+
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tracing setup shared by the server and the clients.
+ * <p>
+ * A sync round runs over one long-lived Sync stream, so its trace context can not travel in
+ * per-call gRPC metadata; it is carried in the {@code trace_parent} field of the round's
+ * messages instead, in W3C {@code traceparent} format.
+ */
+public final class Tracing {
+
+    public static final String INSTRUMENTATION = "com.deathnode.sync";
+
+    private static final String TRACEPARENT = "traceparent";
+    private static final W3CTraceContextPropagator PROPAGATOR = W3CTraceContextPropagator.getInstance();
+
+    private static final TextMapGetter<Map<String, String>> GETTER = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(Map<String, String> carrier) {
+            return carrier.keySet();
+        }
+
+        @Override
+        public String get(Map<String, String> carrier, String key) {
+            return (carrier != null) ? carrier.get(key) : null;
+        }
+    };
+
+    /**
+     * SDK exporting every span of this process to the given file (see {@link FileSpanExporter}).
+     * Close it on shutdown to flush the last spans.
+     */
+    public static OpenTelemetrySdk create(String serviceName, Path file) throws IOException {
+        Resource resource = Resource.getDefault().merge(
+                Resource.create(Attributes.of(AttributeKey.stringKey("service.name"), serviceName)));
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .setResource(resource)
+                .addSpanProcessor(BatchSpanProcessor.builder(new FileSpanExporter(file)).build())
+                .build();
+        return OpenTelemetrySdk.builder()
+                .setTracerProvider(tracerProvider)
+                .build();
+    }
+
+    /**
+     * Tracing turned off: spans are created but never recorded.
+     */
+    public static OpenTelemetry disabled() {
+        return OpenTelemetry.noop();
+    }
+
+    /**
+     * The {@code traceparent} of the span in the given context ("" if there is none).
+     */
+    public static String traceParent(Context context) {
+        Map<String, String> carrier = new HashMap<>();
+        PROPAGATOR.inject(context, carrier, Map::put);
+        return carrier.getOrDefault(TRACEPARENT, "");
+    }
+
+    /**
+     * Context to start a child span from, for a received {@code traceparent}
+     * (the root context if it is empty or invalid).
+     */
+    public static Context parent(String traceParent) {
+        if (traceParent == null || traceParent.isEmpty()) {
+            return Context.root();
+        }
+        return PROPAGATOR.extract(Context.root(), Map.of(TRACEPARENT, traceParent), GETTER);
+    }
+
+    private Tracing() {
+        // empty
+    }
+}
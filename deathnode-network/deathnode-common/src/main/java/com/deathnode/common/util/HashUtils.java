@@ -1,5 +1,8 @@
 package com.deathnode.common.util;
 
+import com.google.protobuf.ByteString;
+
+import java.nio.ByteBuffer;
 import java.security.MessageDigest;
 import java.util.Base64;
 
@@ -18,6 +21,25 @@ public class HashUtils {
         }
     }
 
+    /**
+     * Hash a ByteString through its read-only views (no copy, even for ropes).
+     */
+    public static byte[] sha256(ByteString data) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (ByteBuffer chunk : data.asReadOnlyByteBufferList()) {
+                digest.update(chunk);
+            }
+            return digest.digest();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to compute SHA-256", e);
+        }
+    }
+
+    public static String sha256Hex(ByteString data) {
+        return bytesToHex(sha256(data));
+    }
+
     public static String sha256Hex(byte[] data) {
         try {
             return bytesToHex(sha256(data));
@@ -1,5 +1,7 @@
 package com.deathnode.common.util;
 
+import com.google.protobuf.ByteString;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Arrays;
@@ -11,11 +13,38 @@ public class MerkleUtils {
         }
 
         // start from hashed leaves so root is always 32 bytes
-        List<byte[]> currentLayer = new ArrayList<>(envelopes.size());
+        List<byte[]> leafHashes = new ArrayList<>(envelopes.size());
         for (byte[] leaf : envelopes) {
-            currentLayer.add(HashUtils.sha256(leaf));
+            leafHashes.add(HashUtils.sha256(leaf));
+        }
+        return computeMerkleRootFromLeafHashes(leafHashes);
+    }
+
+    /**
+     * Same root as {@link #computeMerkleRoot}, for envelopes kept as ByteStrings (hashed without copying).
+     */
+    public static byte[] computeMerkleRootOfByteStrings(List<ByteString> envelopes) {
+        if (envelopes == null || envelopes.isEmpty()) {
+            return HashUtils.sha256(new byte[0]);
         }
 
+        List<byte[]> leafHashes = new ArrayList<>(envelopes.size());
+        for (ByteString leaf : envelopes) {
+            leafHashes.add(HashUtils.sha256(leaf));
+        }
+        return computeMerkleRootFromLeafHashes(leafHashes);
+    }
+
+    /**
+     * Build the tree from already hashed leaves, so callers that keep envelope hashes around
+     * do not hash the envelopes twice.
+     */
+    public static byte[] computeMerkleRootFromLeafHashes(List<byte[]> leafHashes) {
+        if (leafHashes == null || leafHashes.isEmpty()) {
+            return HashUtils.sha256(new byte[0]);
+        }
+
+        List<byte[]> currentLayer = leafHashes;
         while (currentLayer.size() > 1) {
             List<byte[]> nextLayer = new ArrayList<>();
             for (int i = 0; i < currentLayer.size(); i += 2) {
@@ -37,4 +66,9 @@ public class MerkleUtils {
         byte[] computedRoot = computeMerkleRoot(envelopes);
         return Arrays.equals(computedRoot, expectedRoot);
     }
+
+    public static boolean verifyMerkleRootOfByteStrings(List<ByteString> envelopes, byte[] expectedRoot) {
+        byte[] computedRoot = computeMerkleRootOfByteStrings(envelopes);
+        return Arrays.equals(computedRoot, expectedRoot);
+    }
 }
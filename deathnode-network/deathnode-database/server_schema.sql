@@ -1,3 +1,4 @@
+DROP TABLE IF EXISTS ledger_head;
 DROP TABLE IF EXISTS signed_block_merkle_roots;;
 DROP TABLE IF EXISTS reports;
 DROP TABLE IF EXISTS nodes_sync_state;
@@ -24,18 +25,34 @@ CREATE TABLE IF NOT EXISTS reports (
     global_sequence_number  BIGINT, -- assigned by server; null for unsynced reports
     metadata_timestamp      TIMESTAMP WITH TIME ZONE    NOT NULL,
     prev_report_hash        VARCHAR(64),
-    file_path               TEXT                        NOT NULL,
+    file_path               TEXT                        NOT NULL, -- envelope log locator (log:segment:offset:length) or legacy file path
     UNIQUE (signer_node_id, node_sequence_number),
     FOREIGN KEY (signer_node_id) REFERENCES nodes(node_id)
 );
 
 CREATE TABLE IF NOT EXISTS signed_block_merkle_roots (
     block_id                    BIGSERIAL                   PRIMARY KEY, -- auto-incremented
-    block_number                BIGINT                      NOT NULL        UNIQUE,
+    shard_id                    INT                         NOT NULL        DEFAULT 0,
+    block_number                BIGINT                      NOT NULL, -- number within the shard's chain
     block_root                  VARCHAR(64)                 NOT NULL        UNIQUE,
-    prev_block_root             VARCHAR(64)
+    prev_block_root             VARCHAR(64), -- previous block of the same shard
+    first_global_sequence       BIGINT, -- global sequence number of the block's first envelope
+    envelope_count              INT,
+    global_block_number         BIGINT                      UNIQUE, -- position in the top-level chain of shard blocks
+    global_root                 VARCHAR(64), -- SHA-256(previous global_root || shard_id || block_root)
+    UNIQUE (shard_id, block_number)
 );
 
+-- single row: next global sequence and head of the top-level chain (global block number and root), updated in each block's commit transaction
+CREATE TABLE IF NOT EXISTS ledger_head (
+    id                          SMALLINT                    PRIMARY KEY     CHECK (id = 1),
+    next_global_sequence        BIGINT                      NOT NULL,
+    last_block_number           BIGINT                      NOT NULL,
+    last_block_root             VARCHAR(64)
+);
+
+INSERT INTO ledger_head(id, next_global_sequence, last_block_number, last_block_root) VALUES (1, 1, 0, NULL);
+
 INSERT INTO nodes(node_id, pseudonym, enc_pub_key, sign_pub_key) 
 VALUES (
   'nodeA',
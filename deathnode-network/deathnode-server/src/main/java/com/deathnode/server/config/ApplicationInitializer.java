@@ -1,40 +1,120 @@
 package com.deathnode.server.config;
 
 import com.deathnode.server.service.DatabaseManager;
+import com.deathnode.server.service.EnvelopeLogMigration;
+import com.deathnode.server.service.EnvelopeLogReader;
+import com.deathnode.server.service.EnvelopeLogStore;
+import com.deathnode.server.service.LeadershipService;
+import com.deathnode.server.service.LedgerHeadService;
+import com.deathnode.server.service.NodeChainCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 @Component
 public class ApplicationInitializer {
 
+    private static final Logger log = LoggerFactory.getLogger(ApplicationInitializer.class);
+
     private final DatabaseManager databaseManager;
+    private final NodeChainCache nodeChainCache;
+    private final LedgerHeadService ledgerHeadService;
+    private final EnvelopeLogStore envelopeLogStore;
+    private final EnvelopeLogMigration envelopeLogMigration;
+    private final EnvelopeLogReader envelopeLogReader;
+    private final LeadershipService leadershipService;
+
+    @Value("${storage.log.migrate-legacy-files:false}")
+    private boolean migrateLegacyFiles;
+    @Value("${storage.reset-on-startup:true}")
+    private boolean resetOnStartup;
+    @Value("${ha.enabled:false}")
+    private boolean haEnabled;
 
-    public ApplicationInitializer(DatabaseManager databaseManager) {
+    public ApplicationInitializer(DatabaseManager databaseManager, NodeChainCache nodeChainCache,
+                                  LedgerHeadService ledgerHeadService, EnvelopeLogStore envelopeLogStore,
+                                  EnvelopeLogMigration envelopeLogMigration, EnvelopeLogReader envelopeLogReader,
+                                  LeadershipService leadershipService) {
         this.databaseManager = databaseManager;
+        this.nodeChainCache = nodeChainCache;
+        this.ledgerHeadService = ledgerHeadService;
+        this.envelopeLogStore = envelopeLogStore;
+        this.envelopeLogMigration = envelopeLogMigration;
+        this.envelopeLogReader = envelopeLogReader;
+        this.leadershipService = leadershipService;
     }
 
     /**
-     * Run database reinitialization when the Spring application is ready.
+     * Run database reinitialization when the Spring application is ready (unless
+     * {@code storage.reset-on-startup} is off, as it must be when several instances share
+     * the database), then compete for leadership. The leader opens the envelope log
+     * (importing legacy envelope files if enabled) and its read index, and loads the ledger
+     * head and the chain cache (checked against the stored reports); standbys keep the
+     * ledger head and chain cache loaded.
+     * <p>
+     * Importing legacy files needs the reports they belong to, which the reset would drop,
+     * so {@code storage.log.migrate-legacy-files} requires {@code storage.reset-on-startup: false}.
+     * So does {@code ha.enabled}: a standby starting up would drop the tables the leader is using.
      */
     @EventListener(ApplicationReadyEvent.class)
     public void onApplicationReady() {
-        System.out.println("=".repeat(60));
-        System.out.println("Initializing Server...");
-        System.out.println("=".repeat(60));
-        
+        if (migrateLegacyFiles && resetOnStartup) {
+            throw new IllegalStateException("storage.log.migrate-legacy-files requires storage.reset-on-startup: false"
+                    + " (the reset would drop the reports to import)");
+        }
+        if (haEnabled && resetOnStartup) {
+            throw new IllegalStateException("ha.enabled requires storage.reset-on-startup: false"
+                    + " (the reset would drop the tables of the current leader)");
+        }
+
+        log.info("Initializing server");
+
         try {
-            databaseManager.reinitializeDatabase();
-            System.out.println("=".repeat(60));
-            System.out.println("Server initialization completed successfully");
-            System.out.println("=".repeat(60));
+            if (resetOnStartup) {
+                databaseManager.reinitializeDatabase();
+            }
+            leadershipService.start(this::activate, this::refreshStandby);
+            log.atInfo().setMessage("Server initialization completed")
+                    .addKeyValue("reset", resetOnStartup)
+                    .addKeyValue("ha", haEnabled)
+                    .log();
         } catch (Exception e) {
-            System.err.println("=".repeat(60));
-            System.err.println("CRITICAL: Failed to initialize database on startup");
-            System.err.println("Error: " + e.getMessage());
-            System.err.println("=".repeat(60));
-            e.printStackTrace();
+            log.atError().setMessage("Failed to initialize database on startup")
+                    .setCause(e)
+                    .log();
             throw new RuntimeException("Database initialization failed on startup", e);
         }
     }
+
+    /**
+     * Prepare to serve as the leader.
+     */
+    private void activate() {
+        try {
+            envelopeLogStore.open();
+            if (migrateLegacyFiles) {
+                envelopeLogMigration.migrate();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the envelope log", e);
+        }
+        envelopeLogReader.load();
+        ledgerHeadService.load();
+        nodeChainCache.warm();
+        nodeChainCache.verifyConsistency();
+    }
+
+    /**
+     * Keep a standby's caches close to the leader's, so a takeover has little to load.
+     */
+    private void refreshStandby() {
+        ledgerHeadService.load();
+        nodeChainCache.warm();
+    }
 }
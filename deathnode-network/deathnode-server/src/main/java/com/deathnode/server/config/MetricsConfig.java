@@ -0,0 +1,86 @@
+package com.deathnode.server.config;
+
+import com.deathnode.server.entity.Node;
+import com.deathnode.server.repository.NodeRepository;
+import com.deathnode.server.service.BlockSigningService;
+import com.deathnode.server.service.NodeLatencyTracker.NodeLatency;
+import com.deathnode.server.service.RecentBlockCache;
+import com.deathnode.server.service.RoundScheduler;
+import com.deathnode.server.service.ShardRouter;
+import com.deathnode.server.service.SyncCoordinator;
+import com.deathnode.server.service.UploadVerificationStage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToLongFunction;
+
+/**
+ * Exposes the services' existing {@code getStats()} counters as Micrometer meters, read
+ * on each scrape (see {@code /actuator/prometheus}). Per-node latencies and adapted
+ * deadlines come from the coordinator of the node's shard.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder deathnodeStats(BlockSigningService signing, UploadVerificationStage verification,
+                                      RecentBlockCache blockCache, RoundScheduler scheduler, ShardRouter shardRouter,
+                                      NodeRepository nodeRepository) {
+        return registry -> {
+            FunctionCounter.builder("deathnode.signing.signs", signing, s -> s.getStats().signCount()).register(registry);
+            FunctionCounter.builder("deathnode.signing.verifies", signing, s -> s.getStats().verifyCount()).register(registry);
+            FunctionCounter.builder("deathnode.signing.verify.failures", signing, s -> s.getStats().verifyFailures()).register(registry);
+            FunctionCounter.builder("deathnode.signing.key.reloads", signing, s -> s.getStats().keyReloads()).register(registry);
+
+            Gauge.builder("deathnode.verify.queue.depth", verification, v -> v.getStats().queueDepth()).register(registry);
+            Gauge.builder("deathnode.verify.active", verification, v -> v.getStats().active()).register(registry);
+            FunctionCounter.builder("deathnode.verify.rejected", verification, v -> v.getStats().rejected())
+                    .description("Uploads rejected because the verification queue was full").register(registry);
+
+            Gauge.builder("deathnode.block.cache.blocks", blockCache, c -> c.getStats().blocks()).register(registry);
+            Gauge.builder("deathnode.block.cache.bytes", blockCache, c -> c.getStats().bytes()).baseUnit("bytes").register(registry);
+            FunctionCounter.builder("deathnode.block.cache.hits", blockCache, c -> c.getStats().hits()).register(registry);
+            FunctionCounter.builder("deathnode.block.cache.misses", blockCache, c -> c.getStats().misses()).register(registry);
+            FunctionCounter.builder("deathnode.block.cache.evictions", blockCache, c -> c.getStats().evictions()).register(registry);
+
+            FunctionCounter.builder("deathnode.scheduler.rounds.opened", scheduler, s -> s.getStats().roundsOpened()).register(registry);
+            FunctionCounter.builder("deathnode.scheduler.triggers.merged", scheduler, s -> s.getStats().triggersMerged()).register(registry);
+            Gauge.builder("deathnode.scheduler.nodes.pending", scheduler, s -> s.getStats().nodesPending()).register(registry);
+
+            for (int shardId = 0; shardId < shardRouter.shardCount(); shardId++) {
+                SyncCoordinator coordinator = shardRouter.coordinator(shardId);
+                String shard = String.valueOf(shardId);
+                FunctionCounter.builder("deathnode.commit.without.all.acks", coordinator, c -> c.getCommitStats().committedWithoutAllAcks())
+                        .tag("shard", shard).register(registry);
+                FunctionCounter.builder("deathnode.acks.duplicate", coordinator, c -> c.getCommitStats().duplicateAcks())
+                        .tag("shard", shard).register(registry);
+                FunctionCounter.builder("deathnode.acks.late", coordinator, c -> c.getCommitStats().lateAcks())
+                        .tag("shard", shard).register(registry);
+            }
+
+            for (Node node : nodeRepository.findAll()) {
+                String nodeId = node.getNodeId();
+                SyncCoordinator coordinator = shardRouter.coordinatorFor(nodeId);
+                nodeGauge(registry, "deathnode.node.upload.latency.p50", coordinator, nodeId, NodeLatency::uploadP50Ms);
+                nodeGauge(registry, "deathnode.node.upload.latency.high", coordinator, nodeId, NodeLatency::uploadHighMs);
+                nodeGauge(registry, "deathnode.node.upload.deadline", coordinator, nodeId, NodeLatency::uploadDeadlineMs);
+                nodeGauge(registry, "deathnode.node.ack.latency.p50", coordinator, nodeId, NodeLatency::ackP50Ms);
+                nodeGauge(registry, "deathnode.node.ack.latency.high", coordinator, nodeId, NodeLatency::ackHighMs);
+                nodeGauge(registry, "deathnode.node.ack.deadline", coordinator, nodeId, NodeLatency::ackDeadlineMs);
+            }
+        };
+    }
+
+    private static void nodeGauge(MeterRegistry registry, String name, SyncCoordinator coordinator, String nodeId,
+                                  ToLongFunction<NodeLatency> value) {
+        Gauge.builder(name, coordinator, c -> value.applyAsLong(c.getLatencyStats(nodeId)))
+                .tag("node", nodeId)
+                .tag("shard", String.valueOf(coordinator.getShardId()))
+                .baseUnit("milliseconds")
+                .register(registry);
+    }
+}
@@ -0,0 +1,39 @@
+package com.deathnode.server.config;
+
+import com.deathnode.common.tracing.Tracing;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Sync-round tracing. Spans go to a JSON-lines file (see {@code FileSpanExporter});
+ * the SDK is closed, and the last spans flushed, when the context shuts down.
+ */
+@Configuration
+public class TracingConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(TracingConfig.class);
+
+    @Bean
+    public OpenTelemetry openTelemetry(@Value("${tracing.enabled:true}") boolean enabled,
+                                       @Value("${tracing.file:server-data/traces/server-spans.jsonl}") String file) throws IOException {
+        if (!enabled) {
+            log.info("Tracing disabled");
+            return Tracing.disabled();
+        }
+        log.info("Tracing sync rounds to {}", file);
+        return Tracing.create("deathnode-server", Path.of(file));
+    }
+
+    @Bean
+    public Tracer tracer(OpenTelemetry openTelemetry) {
+        return openTelemetry.getTracer(Tracing.INSTRUMENTATION);
+    }
+}
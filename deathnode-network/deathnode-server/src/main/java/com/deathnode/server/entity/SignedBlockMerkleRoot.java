@@ -15,7 +15,11 @@ public class SignedBlockMerkleRoot {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long blockId;
 
-    @Column(name = "block_number", nullable = false, unique = true)
+    @Column(name = "shard_id", nullable = false)
+    private int shardId;
+
+    // number within the shard's chain
+    @Column(name = "block_number", nullable = false)
     private long blockNumber;
 
     @Column(name = "block_root", nullable = false, unique = true, length = 64)
@@ -28,7 +32,8 @@ public class SignedBlockMerkleRoot {
         // Default constructor
     }
 
-    public SignedBlockMerkleRoot(long blockNumber, String blockRoot, String prevBlockRoot) {
+    public SignedBlockMerkleRoot(int shardId, long blockNumber, String blockRoot, String prevBlockRoot) {
+        this.shardId = shardId;
         this.blockNumber = blockNumber;
         this.blockRoot = blockRoot;
         this.prevBlockRoot = prevBlockRoot;
@@ -38,6 +43,10 @@ public class SignedBlockMerkleRoot {
         return blockId;
     }
 
+    public int getShardId() {
+        return shardId;
+    }
+
     public long getBlockNumber() {
         return blockNumber;
     }
@@ -45,4 +54,8 @@ public class SignedBlockMerkleRoot {
     public String getBlockRoot() {
         return blockRoot;
     }
+
+    public String getPrevBlockRoot() {
+        return prevBlockRoot;
+    }
 }
@@ -0,0 +1,204 @@
+package com.deathnode.server.grpc;
+
+import com.deathnode.common.grpc.BlockChunk;
+import com.deathnode.common.util.HashUtils;
+import com.deathnode.server.service.BlockCatchUpService;
+import com.deathnode.server.service.BlockCatchUpService.CommittedBlock;
+import com.deathnode.server.service.RecentBlockCache.CachedBlock;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Streams the committed blocks of one shard to a catching-up node of that shard.
+ * <p>
+ * Driven by the call's flow control: chunks are only produced while the transport is
+ * ready, block headers are read a page at a time and a chunk carries at most
+ * {@code maxChunkBytes} of envelopes (at least one), so memory stays bounded however
+ * far behind the node is. Blocks still in the recent-blocks cache are sent from memory;
+ * older ones are wrapped straight from the mapped log segments.
+ * Blocks committed after the stream started are not included; the node receives them live.
+ */
+public class BlockStreamer {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockStreamer.class);
+
+    private final ServerCallStreamObserver<BlockChunk> observer;
+    private final BlockCatchUpService catchUpService;
+    private final int shardId;
+    private final long lastBlock;
+    private final int pageBlocks;
+    private final int maxChunkBytes;
+
+    // guarded by "this"
+    private final Deque<CommittedBlock> page = new ArrayDeque<>();
+    private long nextBlock;
+    private CommittedBlock current = null;
+    private ByteString currentSignedRoot = null;
+    private long nextSeq;
+    private CachedBlock cached = null;
+    private int nextIndex;
+    private boolean done = false;
+
+    public BlockStreamer(ServerCallStreamObserver<BlockChunk> observer, BlockCatchUpService catchUpService,
+                         int shardId, long fromBlock, int pageBlocks, int maxChunkBytes) {
+        this.observer = observer;
+        this.catchUpService = catchUpService;
+        this.shardId = shardId;
+        this.lastBlock = catchUpService.lastCommittedBlock(shardId);
+        this.nextBlock = Math.max(1, fromBlock);
+        this.pageBlocks = pageBlocks;
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
+    /**
+     * Install the flow-control handlers and send what the transport accepts right away.
+     * Must be called from the RPC method, before it returns.
+     */
+    public void start() {
+        observer.setOnReadyHandler(this::drain);
+        observer.setOnCancelHandler(this::cancel);
+        drain();
+    }
+
+    private synchronized void cancel() {
+        done = true;
+    }
+
+    private synchronized void drain() {
+        try {
+            while (!done && observer.isReady()) {
+                BlockChunk chunk = nextChunk();
+                if (chunk == null) {
+                    done = true;
+                    observer.onCompleted();
+                    return;
+                }
+                observer.onNext(chunk);
+            }
+        } catch (Exception e) {
+            done = true;
+            log.warn("Failed to stream catch-up block {}: {}", nextBlock, e.getMessage());
+            observer.onError(Status.INTERNAL.withDescription("Failed to stream block " + nextBlock + ": " + e.getMessage()).asRuntimeException());
+        }
+    }
+
+    /**
+     * Next chunk to send, or null once every block up to {@link #lastBlock} was sent.
+     */
+    private BlockChunk nextChunk() throws Exception {
+        if (current == null && cached == null && !startNextBlock()) {
+            return null;
+        }
+        return (cached != null) ? nextCachedChunk() : nextLogChunk();
+    }
+
+    private BlockChunk nextCachedChunk() {
+        List<ByteString> envelopes = cached.envelopes();
+        BlockChunk.Builder chunk = BlockChunk.newBuilder()
+                .setBlockNumber(cached.blockNumber())
+                .setBlockRoot(UnsafeByteOperations.unsafeWrap(cached.blockRoot()))
+                .setSignedBlockRoot(UnsafeByteOperations.unsafeWrap(cached.signedBlockRoot()))
+                .setEnvelopeCount(envelopes.size());
+        if (cached.prevBlockRoot() != null) {
+            chunk.setPrevBlockRoot(UnsafeByteOperations.unsafeWrap(cached.prevBlockRoot()));
+        }
+
+        int bytes = 0;
+        while (nextIndex < envelopes.size()) {
+            ByteString envelope = envelopes.get(nextIndex);
+            if (chunk.getEnvelopesCount() > 0 && bytes + envelope.size() > maxChunkBytes) {
+                break;
+            }
+            bytes += envelope.size();
+            chunk.addEnvelopes(envelope);
+            nextIndex++;
+        }
+        catchUpService.recordServedFromCache(bytes);
+
+        if (nextIndex == envelopes.size()) {
+            chunk.setLast(true);
+            nextBlock = cached.blockNumber() + 1;
+            cached = null;
+        }
+        return chunk.build();
+    }
+
+    private BlockChunk nextLogChunk() throws Exception {
+        long end = current.firstGlobalSequence() + current.envelopeCount();
+        BlockChunk.Builder chunk = BlockChunk.newBuilder()
+                .setBlockNumber(current.blockNumber())
+                .setBlockRoot(UnsafeByteOperations.unsafeWrap(HashUtils.hexToBytes(current.blockRoot())))
+                .setSignedBlockRoot(currentSignedRoot)
+                .setEnvelopeCount(current.envelopeCount());
+        if (current.prevBlockRoot() != null) {
+            chunk.setPrevBlockRoot(UnsafeByteOperations.unsafeWrap(HashUtils.hexToBytes(current.prevBlockRoot())));
+        }
+
+        int[] bytes = {0};
+        long[] expected = {nextSeq};
+        catchUpService.envelopes().forEachInRange(nextSeq, end, (seq, envelope) -> {
+            if (seq != expected[0]) {
+                return false; // gap: envelope not in the log
+            }
+            if (chunk.getEnvelopesCount() > 0 && bytes[0] + envelope.remaining() > maxChunkBytes) {
+                return false;
+            }
+            bytes[0] += envelope.remaining();
+            chunk.addEnvelopes(UnsafeByteOperations.unsafeWrap(envelope));
+            expected[0]++;
+            return true;
+        });
+        if (chunk.getEnvelopesCount() == 0 && nextSeq < end) {
+            throw new IllegalStateException("Envelope " + nextSeq + " of block " + current.blockNumber() + " is not in the envelope log");
+        }
+
+        nextSeq = expected[0];
+        if (nextSeq == end) {
+            chunk.setLast(true);
+            nextBlock = current.blockNumber() + 1;
+            current = null;
+        }
+        return chunk.build();
+    }
+
+    private boolean startNextBlock() throws Exception {
+        if (nextBlock > lastBlock) {
+            return false;
+        }
+
+        cached = catchUpService.cachedBlock(shardId, nextBlock);
+        if (cached != null) {
+            if (!page.isEmpty() && page.peek().blockNumber() == nextBlock) {
+                page.poll(); // header already read, the block is sent from memory instead
+            }
+            nextIndex = 0;
+            return true;
+        }
+
+        if (page.isEmpty()) {
+            page.addAll(catchUpService.blocks(shardId, nextBlock, lastBlock, pageBlocks));
+            if (page.isEmpty()) {
+                return false;
+            }
+        }
+
+        current = page.poll();
+        if (current.blockNumber() != nextBlock) {
+            throw new IllegalStateException("Block " + nextBlock + " is missing");
+        }
+        if (current.firstGlobalSequence() == null || current.envelopeCount() == null) {
+            throw new IllegalStateException("Block " + nextBlock + " has no recorded envelope range");
+        }
+        currentSignedRoot = UnsafeByteOperations.unsafeWrap(catchUpService.signBlockRoot(HashUtils.hexToBytes(current.blockRoot())));
+        nextSeq = current.firstGlobalSequence();
+        return true;
+    }
+}
@@ -0,0 +1,207 @@
+package com.deathnode.server.grpc;
+
+import com.deathnode.common.grpc.ServerMessage;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Outbound side of a client's sync stream.
+ * <p>
+ * Messages are queued as encoded {@link ServerFrame}s and only written while the
+ * transport is ready (flow control), so {@link #send} never blocks the caller. The queue is bounded in bytes: when a
+ * client does not keep up, the configured {@link SlowConsumerPolicy} is applied. The bound only counts bytes already
+ * queued, so a frame larger than the limit still goes out when nothing is waiting.
+ * <p>
+ * Any thread may call {@link #send}; writes to the underlying observer are
+ * serialized by the drain loop (only one thread drains at a time).
+ */
+public class ClientConnection {
+
+    private static final Logger log = LoggerFactory.getLogger(ClientConnection.class);
+
+    public enum SlowConsumerPolicy {
+        /** Close the stream with RESOURCE_EXHAUSTED. */
+        DISCONNECT,
+        /** Drop messages and mark the connection as lagging until the queue drains. */
+        LAG
+    }
+
+    private final ServerCallStreamObserver<ServerFrame> observer;
+    private final long maxQueuedBytes;
+    private final SlowConsumerPolicy policy;
+
+    private final Queue<ServerFrame> outbound = new ConcurrentLinkedQueue<>();
+    private final AtomicLong queuedBytes = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+
+    private volatile String nodeId;
+    private volatile boolean supportsDelta = false;
+    private volatile boolean lagging = false;
+    private volatile boolean closed = false;
+    private volatile boolean completeRequested = false;
+    private volatile Throwable errorRequested = null;
+
+    public ClientConnection(ServerCallStreamObserver<ServerFrame> observer, long maxQueuedBytes, SlowConsumerPolicy policy) {
+        this.observer = observer;
+        this.maxQueuedBytes = maxQueuedBytes;
+        this.policy = policy;
+
+        // both handlers must be set before the first message is sent
+        observer.setOnReadyHandler(this::drain);
+        observer.setOnCancelHandler(() -> {
+            closed = true;
+            outbound.clear();
+            queuedBytes.set(0);
+        });
+    }
+
+    /**
+     * Encode and queue a message for this client only.
+     */
+    public boolean send(ServerMessage msg) {
+        return send(ServerFrame.of(msg));
+    }
+
+    /**
+     * Queue an already encoded frame; the same frame may be shared by many connections.
+     *
+     * @return false if the frame was dropped (closed, lagging or over the byte limit)
+     */
+    public boolean send(ServerFrame frame) {
+        if (closed || lagging) {
+            return false;
+        }
+
+        int size = frame.size();
+        long queued = queuedBytes.addAndGet(size);
+        if (queued > maxQueuedBytes && queued != size) { // an empty queue always takes the frame
+            queuedBytes.addAndGet(-size);
+            onSlowConsumer();
+            return false;
+        }
+
+        outbound.offer(frame);
+        drain();
+        return true;
+    }
+
+    /**
+     * Complete the stream once every queued message has been written.
+     */
+    public void close() {
+        completeRequested = true;
+        drain();
+    }
+
+    /**
+     * Fail the stream right away, discarding whatever is still queued.
+     */
+    public void closeWithError(Throwable error) {
+        errorRequested = error;
+        drain();
+    }
+
+    private void onSlowConsumer() {
+        if (policy == SlowConsumerPolicy.DISCONNECT) {
+            log.warn("{} exceeded {} queued bytes, disconnecting", nodeId, maxQueuedBytes);
+            closeWithError(Status.RESOURCE_EXHAUSTED
+                    .withDescription("Slow consumer: more than " + maxQueuedBytes + " bytes queued")
+                    .asRuntimeException());
+        } else if (!lagging) {
+            log.warn("{} exceeded {} queued bytes, marked as lagging", nodeId, maxQueuedBytes);
+            lagging = true;
+        }
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return; // another thread is draining and will see our work
+        }
+
+        do {
+            if (closed) {
+                outbound.clear();
+            } else if (errorRequested != null) {
+                closed = true;
+                outbound.clear();
+                queuedBytes.set(0);
+                try {
+                    observer.onError(errorRequested);
+                } catch (Exception ignored) {
+                    // stream already gone
+                }
+            } else {
+                writeReady();
+                if (completeRequested && outbound.isEmpty()) {
+                    closed = true;
+                    try {
+                        observer.onCompleted();
+                    } catch (Exception ignored) {
+                        // stream already gone
+                    }
+                }
+            }
+        } while (wip.decrementAndGet() != 0);
+    }
+
+    private void writeReady() {
+        while (observer.isReady()) {
+            ServerFrame frame = outbound.poll();
+            if (frame == null) {
+                clearLagging(queuedBytes.get());
+                return;
+            }
+
+            long left = queuedBytes.addAndGet(-frame.size());
+            try {
+                observer.onNext(frame);
+            } catch (Exception e) {
+                log.warn("Failed to write to {}: {}", nodeId, e.getMessage());
+                closed = true;
+                outbound.clear();
+                queuedBytes.set(0);
+                return;
+            }
+
+            clearLagging(left);
+        }
+    }
+
+    private void clearLagging(long queued) {
+        if (lagging && queued <= maxQueuedBytes / 2) {
+            lagging = false;
+            log.info("{} caught up, no longer lagging", nodeId);
+        }
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public boolean supportsDelta() {
+        return supportsDelta;
+    }
+
+    public void setSupportsDelta(boolean supportsDelta) {
+        this.supportsDelta = supportsDelta;
+    }
+
+    public boolean isLagging() {
+        return lagging;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
@@ -0,0 +1,118 @@
+package com.deathnode.server.grpc;
+
+import com.deathnode.common.grpc.ServerMessage;
+import com.google.protobuf.ByteString;
+import io.grpc.Drainable;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A ServerMessage that is already encoded.
+ * <p>
+ * Broadcasts encode the message once and hand the same frame to every stream;
+ * {@link #MARSHALLER} writes the shared bytes as they are, so no stream serializes
+ * the message again. On the wire this is exactly an encoded ServerMessage, so clients
+ * are not affected.
+ */
+public final class ServerFrame {
+
+    public static final MethodDescriptor.Marshaller<ServerFrame> MARSHALLER = new FrameMarshaller();
+
+    private final ByteString bytes;
+
+    private ServerFrame(ByteString bytes) {
+        this.bytes = bytes;
+    }
+
+    public static ServerFrame of(ServerMessage message) {
+        return new ServerFrame(message.toByteString());
+    }
+
+    /**
+     * Wrap bytes that already are an encoded ServerMessage (possibly a rope of shared pieces).
+     */
+    public static ServerFrame ofEncoded(ByteString encodedMessage) {
+        return new ServerFrame(encodedMessage);
+    }
+
+    public ByteString getBytes() {
+        return bytes;
+    }
+
+    public int size() {
+        return bytes.size();
+    }
+
+    /**
+     * Pass-through marshaller: streams the encoded bytes, parses back into a frame (only needed for in-process calls).
+     */
+    private static final class FrameMarshaller implements MethodDescriptor.Marshaller<ServerFrame> {
+
+        @Override
+        public InputStream stream(ServerFrame frame) {
+            return new FrameInputStream(frame.bytes);
+        }
+
+        @Override
+        public ServerFrame parse(InputStream stream) {
+            try {
+                return new ServerFrame(ByteString.readFrom(stream));
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to read server frame", e);
+            }
+        }
+    }
+
+    /**
+     * gRPC drains {@link Drainable} streams directly into its transport buffer,
+     * and uses {@link KnownLength} for the frame header, so the shared bytes are
+     * copied once per stream and never re-encoded.
+     */
+    private static final class FrameInputStream extends InputStream implements Drainable, KnownLength {
+
+        private ByteString remaining;
+        private InputStream partial = null;
+
+        FrameInputStream(ByteString bytes) {
+            this.remaining = bytes;
+        }
+
+        @Override
+        public int drainTo(OutputStream target) throws IOException {
+            if (partial != null) {
+                return (int) partial.transferTo(target);
+            }
+            int written = remaining.size();
+            remaining.writeTo(target);
+            remaining = ByteString.EMPTY;
+            return written;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return input().read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return input().read(b, off, len);
+        }
+
+        @Override
+        public int available() throws IOException {
+            return partial != null ? partial.available() : remaining.size();
+        }
+
+        private InputStream input() {
+            if (partial == null) {
+                partial = remaining.newInput();
+                remaining = ByteString.EMPTY;
+            }
+            return partial;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.deathnode.server.grpc;
+
+import com.deathnode.common.grpc.OwnEnvelopeRef;
+import com.deathnode.common.grpc.ServerMessage;
+import com.deathnode.common.grpc.SyncResult;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.UnsafeByteOperations;
+import com.google.protobuf.WireFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the SyncResult frames of one block: the full frame and, for nodes that
+ * support it, a delta frame without the recipient's own envelopes.
+ * <p>
+ * Every part is encoded once (common fields, and each envelope with its field
+ * header) and a recipient's frame is a rope of those shared pieces. This relies on
+ * protobuf allowing fields in any order and on concatenated encodings being merged,
+ * so no envelope is copied or re-encoded per recipient.
+ */
+public class SyncResultFrames {
+
+    private final ByteString commonFields;
+    private final List<ByteString> envelopeFields;
+    private final List<String> signerIds;
+    private final List<byte[]> envelopeHashes;
+    private final Map<String, ServerFrame> deltaFrames = new HashMap<>();
+    private ServerFrame fullFrame = null;
+
+    /**
+     * @param result         SyncResult with every field set except ordered_envelopes
+     * @param envelopes      ordered envelopes of the block
+     * @param signerIds      signer of each envelope, same order
+     * @param envelopeHashes hash of each envelope, same order
+     */
+    public SyncResultFrames(SyncResult result, List<ByteString> envelopes, List<String> signerIds, List<byte[]> envelopeHashes) {
+        this.commonFields = result.toByteString();
+        this.envelopeFields = new ArrayList<>(envelopes.size());
+        for (ByteString envelope : envelopes) {
+            envelopeFields.add(lengthDelimitedField(SyncResult.ORDERED_ENVELOPES_FIELD_NUMBER, envelope));
+        }
+        this.signerIds = signerIds;
+        this.envelopeHashes = envelopeHashes;
+    }
+
+    /**
+     * Frame with every envelope, for nodes that do not support delta results.
+     */
+    public ServerFrame full() {
+        if (fullFrame == null) {
+            ByteString body = commonFields;
+            for (ByteString field : envelopeFields) {
+                body = body.concat(field);
+            }
+            fullFrame = wrap(body);
+        }
+        return fullFrame;
+    }
+
+    /**
+     * Frame for one recipient: its own envelopes are replaced by (position, hash) references.
+     * Recipients without envelopes in the block get the full frame.
+     */
+    public ServerFrame forRecipient(String nodeId) {
+        if (!signerIds.contains(nodeId)) {
+            return full();
+        }
+        return deltaFrames.computeIfAbsent(nodeId, this::buildDelta);
+    }
+
+    private ServerFrame buildDelta(String nodeId) {
+        ByteString body = commonFields;
+        SyncResult.Builder refs = SyncResult.newBuilder().setDelta(true);
+
+        for (int i = 0; i < envelopeFields.size(); i++) {
+            if (nodeId.equals(signerIds.get(i))) {
+                refs.addOwnEnvelopeRefs(OwnEnvelopeRef.newBuilder()
+                        .setIndex(i)
+                        .setEnvelopeHash(UnsafeByteOperations.unsafeWrap(envelopeHashes.get(i))));
+            } else {
+                body = body.concat(envelopeFields.get(i));
+            }
+        }
+
+        return wrap(body.concat(refs.build().toByteString()));
+    }
+
+    /**
+     * Wrap an encoded SyncResult as the sync_result field of a ServerMessage.
+     */
+    private static ServerFrame wrap(ByteString syncResultBody) {
+        return ServerFrame.ofEncoded(lengthDelimitedField(ServerMessage.SYNC_RESULT_FIELD_NUMBER, syncResultBody));
+    }
+
+    private static ByteString lengthDelimitedField(int fieldNumber, ByteString value) {
+        byte[] header = new byte[CodedOutputStream.computeTagSize(fieldNumber)
+                + CodedOutputStream.computeUInt32SizeNoTag(value.size())];
+        try {
+            CodedOutputStream out = CodedOutputStream.newInstance(header);
+            out.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(value.size());
+            out.checkNoSpaceLeft();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode field header", e);
+        }
+        return UnsafeByteOperations.unsafeWrap(header).concat(value);
+    }
+}
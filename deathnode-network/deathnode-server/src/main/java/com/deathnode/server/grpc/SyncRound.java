@@ -7,19 +7,18 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
-import com.deathnode.server.service.SyncCoordinator;
 
 /**
- * Lightweight round state holder.
+ * Lightweight round state holder. Buffers are kept as verified (parsed and hashed) envelopes.
+ * <p>
+ * Not thread-safe: a round is only ever touched from the coordinator's event loop.
  */
 public class SyncRound {
     private String roundId;
     private Set<String> expectedNodes;
     private String initiator;
-    private Map<String, List<byte[]>> buffers = new HashMap<>();
+    private Map<String, List<VerifiedEnvelope>> buffers = new HashMap<>();
     private List<PerNodeSignedBufferRoots> perNodeSignedBufferRoots = new ArrayList<>(); 
-    private CompletableFuture<SyncCoordinator.SyncResultObject> completionFuture = new CompletableFuture<>();
 
     public SyncRound(String roundId, Set<String> expectedNodes, String initiator) {
         this.roundId = roundId;
@@ -31,45 +30,37 @@ public class SyncRound {
     public Set<String> getExpectedNodes(){ return Collections.unmodifiableSet(expectedNodes); }
     public String getInitiator() { return initiator; }
 
-    public synchronized void putBuffer(String nodeId, List<byte[]> envelopes) {
+    public void putBuffer(String nodeId, List<VerifiedEnvelope> envelopes) {
         buffers.put(nodeId, envelopes);
     }
 
-    public synchronized void putNodeSignedBufferRoot(String nodeId, String bufferRoot, String signedBufferRoot) {
+    public void putNodeSignedBufferRoot(String nodeId, String bufferRoot, String signedBufferRoot) {
         perNodeSignedBufferRoots.add(new PerNodeSignedBufferRoots(nodeId, bufferRoot, signedBufferRoot));
     }
 
-    public synchronized List<PerNodeSignedBufferRoots> getPerNodeSignedBufferRoots() {
+    public List<PerNodeSignedBufferRoots> getPerNodeSignedBufferRoots() {
         return new ArrayList<>(perNodeSignedBufferRoots);
     }
 
-    public synchronized boolean isComplete() {
+    public boolean isComplete() {
         return buffers.keySet().containsAll(expectedNodes);
     }
 
-    public synchronized boolean removeExpectedNode(String nodeId) {
+    public boolean removeExpectedNode(String nodeId) {
         boolean removed = expectedNodes.remove(nodeId);
         return removed && isComplete();
     }
 
-    public synchronized Set<String> getUnsubmittedNodes() {
+    public Set<String> getUnsubmittedNodes() {
         Set<String> unsubmitted = new HashSet<>(expectedNodes);
         unsubmitted.removeAll(buffers.keySet());
         return unsubmitted;
     }
 
-    public synchronized Map<String, List<byte[]>> getBuffers() {
+    public Map<String, List<VerifiedEnvelope>> getBuffers() {
         return new HashMap<>(buffers);
     }
 
-    public CompletableFuture<SyncCoordinator.SyncResultObject> getCompletionFuture() {
-        return completionFuture;
-    }
-
-    public void complete(SyncCoordinator.SyncResultObject result) {
-        completionFuture.complete(result);
-    }
-
     public class PerNodeSignedBufferRoots {
         private String nodeId;
         private String bufferRoot;
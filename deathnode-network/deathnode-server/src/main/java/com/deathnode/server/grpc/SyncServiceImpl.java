@@ -7,12 +7,37 @@ import com.deathnode.common.grpc.ServerMessage;
 import com.deathnode.common.grpc.Hello;
 import com.deathnode.common.grpc.BufferUpload;
 import com.deathnode.common.grpc.Ack;
+import com.deathnode.common.grpc.BlockChunk;
+import com.deathnode.common.grpc.FetchBlocksRequest;
+import com.deathnode.common.grpc.PendingStatus;
+import com.deathnode.server.service.BlockCatchUpService;
+import com.deathnode.server.service.LeadershipService;
+import com.deathnode.server.service.RoundScheduler;
+import com.deathnode.server.service.ShardRouter;
 import com.deathnode.server.service.SyncCoordinator;
+import io.grpc.BindableService;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.ServerCalls;
 import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import net.devh.boot.grpc.server.service.GrpcService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.google.protobuf.ByteString;
 
@@ -21,23 +46,148 @@ import com.google.protobuf.ByteString;
  * <p>
  * This handles the server side of the sync protocol:
  * 1. Receives Hello from client
- * 2. Registers client with coordinator
+ * 2. Registers client with the coordinator of its shard (see {@link ShardRouter})
  * 3. Sends RequestBuffer to client
  * 4. Receives BufferUpload from client
  * 5. When all nodes have uploaded, if an error occurs, sends Error to all clients
+ * <p>
+ * Round requests and pending-work reports go to the {@link RoundScheduler}, which decides
+ * when rounds start.
+ * <p>
+ * FetchBlocks streams committed blocks to a node that missed some (see {@link BlockStreamer}).
+ * <p>
+ * A standby instance (see {@link LeadershipService}) rejects both calls with UNAVAILABLE,
+ * so clients move on to the next server address.
+ * <p>
+ * Stream-level meters (open streams, messages by type, upload size and the time from an
+ * upload's arrival to its verification result) are registered here; round phases are
+ * measured by each coordinator's {@link com.deathnode.server.service.SyncMetrics}.
+ * <p>
+ * The service is bound by hand instead of through the generated base class: Sync responses
+ * use a pass-through marshaller for pre-encoded {@link ServerFrame}s, so a broadcast is
+ * serialized once no matter how many streams it goes to.
  */
 @GrpcService
-public class SyncServiceImpl extends SyncServiceGrpc.SyncServiceImplBase {
+public class SyncServiceImpl implements BindableService {
+
+    private static final Logger log = LoggerFactory.getLogger(SyncServiceImpl.class);
 
-    private final SyncCoordinator coordinator;
+    /** Same method as the generated one (same name and wire format), with frames as responses. */
+    private static final MethodDescriptor<ClientMessage, ServerFrame> SYNC_METHOD = SyncServiceGrpc.getSyncMethod()
+            .toBuilder(ProtoUtils.marshaller(ClientMessage.getDefaultInstance()), ServerFrame.MARSHALLER)
+            .build();
 
-    public SyncServiceImpl(SyncCoordinator coordinator) {
-        this.coordinator = coordinator;
+    private final ShardRouter shardRouter;
+    private final RoundScheduler scheduler;
+    private final BlockCatchUpService catchUpService;
+    private final LeadershipService leadershipService;
+    private final AtomicInteger openStreams = new AtomicInteger();
+    private final StreamMeters streamMeters;
+    private final Counter syncRejected;
+    private final Counter fetchRejected;
+    private final Counter catchUpRequests;
+    @Value("${sync.outbound.max-queued-bytes:8388608}")
+    private long maxQueuedBytes;
+    @Value("${sync.outbound.slow-consumer-policy:DISCONNECT}")
+    private ClientConnection.SlowConsumerPolicy slowConsumerPolicy;
+    @Value("${sync.catch-up.page-blocks:32}")
+    private int catchUpPageBlocks;
+    @Value("${sync.catch-up.max-chunk-bytes:1048576}")
+    private int catchUpMaxChunkBytes;
+
+    public SyncServiceImpl(ShardRouter shardRouter, RoundScheduler scheduler, BlockCatchUpService catchUpService,
+                           LeadershipService leadershipService, MeterRegistry meterRegistry) {
+        this.shardRouter = shardRouter;
+        this.scheduler = scheduler;
+        this.catchUpService = catchUpService;
+        this.leadershipService = leadershipService;
+        meterRegistry.gauge("deathnode.streams.open", openStreams);
+        this.streamMeters = new StreamMeters(meterRegistry);
+        this.syncRejected = meterRegistry.counter("deathnode.standby.rejected", "call", "Sync");
+        this.fetchRejected = meterRegistry.counter("deathnode.standby.rejected", "call", "FetchBlocks");
+        this.catchUpRequests = meterRegistry.counter("deathnode.catchup.requests");
     }
 
     @Override
-    public StreamObserver<ClientMessage> sync(StreamObserver<ServerMessage> responseObserver) {
-        return new ClientStreamHandler(responseObserver, coordinator);
+    public ServerServiceDefinition bindService() {
+        return ServerServiceDefinition.builder(SyncServiceGrpc.SERVICE_NAME)
+                .addMethod(SYNC_METHOD, ServerCalls.asyncBidiStreamingCall(this::sync))
+                .addMethod(SyncServiceGrpc.getFetchBlocksMethod(), ServerCalls.asyncServerStreamingCall(this::fetchBlocks))
+                .build();
+    }
+
+    public StreamObserver<ClientMessage> sync(StreamObserver<ServerFrame> responseObserver) {
+        if (!leadershipService.isLeader()) {
+            syncRejected.increment();
+            responseObserver.onError(standby());
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(ClientMessage message) {
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+
+                @Override
+                public void onCompleted() {
+                }
+            };
+        }
+        // the connection installs the flow-control handlers, so it has to exist before this call returns
+        ClientConnection connection = new ClientConnection(
+                (ServerCallStreamObserver<ServerFrame>) responseObserver, maxQueuedBytes, slowConsumerPolicy);
+        openStreams.incrementAndGet();
+        return new ClientStreamHandler(connection, shardRouter, scheduler, streamMeters, openStreams);
+    }
+
+    public void fetchBlocks(FetchBlocksRequest request, StreamObserver<BlockChunk> responseObserver) {
+        if (!leadershipService.isLeader()) {
+            fetchRejected.increment();
+            responseObserver.onError(standby());
+            return;
+        }
+        catchUpRequests.increment();
+        log.atInfo().setMessage("Catch-up request")
+                .addKeyValue("node_id", request.getNodeId())
+                .addKeyValue("from_block", request.getFromBlockNumber())
+                .log();
+        new BlockStreamer((ServerCallStreamObserver<BlockChunk>) responseObserver, catchUpService,
+                shardRouter.shardOf(request.getNodeId()), request.getFromBlockNumber(), catchUpPageBlocks, catchUpMaxChunkBytes).start();
+    }
+
+    private static RuntimeException standby() {
+        return Status.UNAVAILABLE.withDescription("standby server").asRuntimeException();
+    }
+
+    /**
+     * Meters shared by all streams, registered once so the message path does no registry lookups.
+     */
+    private static final class StreamMeters {
+
+        private final Map<ClientMessage.MessageCase, Counter> messages = new EnumMap<>(ClientMessage.MessageCase.class);
+        private final DistributionSummary uploadBytes;
+        private final Timer submitOk;
+        private final Timer submitRejected;
+
+        StreamMeters(MeterRegistry meterRegistry) {
+            for (ClientMessage.MessageCase type : ClientMessage.MessageCase.values()) {
+                messages.put(type, meterRegistry.counter("deathnode.client.messages", "type", type.name()));
+            }
+            this.uploadBytes = DistributionSummary.builder("deathnode.upload.bytes")
+                    .description("Envelope bytes in one buffer upload")
+                    .baseUnit("bytes")
+                    .register(meterRegistry);
+            this.submitOk = submitTimer(meterRegistry, "ok");
+            this.submitRejected = submitTimer(meterRegistry, "rejected");
+        }
+
+        private static Timer submitTimer(MeterRegistry meterRegistry, String outcome) {
+            return Timer.builder("deathnode.upload.submit")
+                    .description("Upload arrival until its verification result")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
     }
 
     /**
@@ -45,18 +195,28 @@ public class SyncServiceImpl extends SyncServiceGrpc.SyncServiceImplBase {
      */
     private static class ClientStreamHandler implements StreamObserver<ClientMessage> {
 
-        private final StreamObserver<ServerMessage> responseObserver;
-        private final SyncCoordinator coordinator;
+        private final ClientConnection connection;
+        private final ShardRouter shardRouter;
+        private final RoundScheduler scheduler;
+        private final StreamMeters meters;
+        private final AtomicInteger openStreams;
         private String nodeId;
+        private SyncCoordinator coordinator; // of the node's shard, set by Hello
         private boolean registered = false;
+        private boolean ended = false;
 
-        public ClientStreamHandler(StreamObserver<ServerMessage> responseObserver, SyncCoordinator coordinator) {
-            this.responseObserver = responseObserver;
-            this.coordinator = coordinator;
+        public ClientStreamHandler(ClientConnection connection, ShardRouter shardRouter, RoundScheduler scheduler,
+                                   StreamMeters meters, AtomicInteger openStreams) {
+            this.connection = connection;
+            this.shardRouter = shardRouter;
+            this.scheduler = scheduler;
+            this.meters = meters;
+            this.openStreams = openStreams;
         }
 
         @Override
         public void onNext(ClientMessage clientMessage) {
+            meters.messages.get(clientMessage.getMessageCase()).increment();
             try {
                 if (clientMessage.hasHello()) {
                     handleHello(clientMessage.getHello());
@@ -66,6 +226,8 @@ public class SyncServiceImpl extends SyncServiceGrpc.SyncServiceImplBase {
                     handleBlockAck(clientMessage.getAck());
                 } else if (clientMessage.hasError()) {
                     handleError(clientMessage.getError());
+                } else if (clientMessage.hasPendingStatus()) {
+                    handlePendingStatus(clientMessage.getPendingStatus());
                 } else {
                     // System.out.println("Received unknown client message type from " + this.nodeId);
                 }
@@ -77,101 +239,129 @@ public class SyncServiceImpl extends SyncServiceGrpc.SyncServiceImplBase {
 
         private void handleHello(Hello hello) {
             this.nodeId = hello.getNodeId();
+            this.coordinator = shardRouter.coordinatorFor(this.nodeId);
 
             if (hello.getStartSync()) {
-                System.out.println("\n  <- Received Sync Request from " + this.nodeId);
-                String roundId = coordinator.startRoundIfAbsent(this.nodeId);
-                // System.out.println("Client " + this.nodeId + " initiated sync round " + roundId);
+                log.info("Sync request from {}", this.nodeId);
+                scheduler.requestRound(this.nodeId, hello.getTraceParent());
             } else {
-                SyncCoordinator.ClientConnection conn = new SyncCoordinator.ClientConnection(this.nodeId, responseObserver);
-                coordinator.registerClient(this.nodeId, conn);
+                connection.setNodeId(this.nodeId);
+                connection.setSupportsDelta(hello.getSupportsDelta());
+                coordinator.registerClient(this.nodeId, connection);
                 registered = true;
-                System.out.println("[V] Connected: " + this.nodeId);
+                log.info("Connected: {} (shard {})", this.nodeId, coordinator.getShardId());
             }
         }
 
         private void handleBufferUpload(BufferUpload upload) {
             String bufferNodeId = upload.getNodeId();
 
-            // Convert protobuf repeated bytes to List<byte[]>
-            List<byte[]> envelopes = upload.getEnvelopesList().stream()
-                    .map(ByteString::toByteArray)
-                    .toList();
+            // Keep the received ByteStrings as they are: they are immutable, so they can be hashed,
+            // stored and rebroadcast without copying
+            List<ByteString> envelopes = upload.getEnvelopesList();
+            long received = System.nanoTime();
+            long bytes = 0;
+            for (ByteString envelope : envelopes) {
+                bytes += envelope.size();
+            }
+            meters.uploadBytes.record(bytes);
 
-            System.out.println("  <- Buffer received from " + bufferNodeId + " (" + envelopes.size() + " envelopes)");
+            log.atDebug().setMessage("Buffer received")
+                    .addKeyValue("round_id", upload.getRoundId())
+                    .addKeyValue("node_id", bufferNodeId)
+                    .addKeyValue("envelopes", envelopes.size())
+                    .addKeyValue("bytes", bytes)
+                    .log();
 
             byte[] bufferRoot = upload.getBufferRoot().toByteArray();
             byte[] signedBufferRoot = upload.getSignedBufferRoot().toByteArray();
 
-            SyncCoordinator.VerificationsResult verificationsResult = coordinator.performAllVerifications(bufferNodeId, this.nodeId, envelopes, bufferRoot, signedBufferRoot);
-
-            if (!verificationsResult.isSuccess()) {
-                sendError(verificationsResult.getErrorCode(), verificationsResult.getErrorMessage());
-                return;
-            }
-
-            // System.out.println("Received buffer upload from " + bufferNodeId + " with " + upload.getEnvelopesCount() + " envelopes");
-
             try {
-                // Subnit buffer to coordinator and get future
-                CompletableFuture<SyncCoordinator.SyncResultObject> future = coordinator.submitBufferAndRoot(bufferNodeId, envelopes, bufferRoot, signedBufferRoot);
-                // When complete, check inf an error occurred. If so, send Error to client. If not, the result have already been broadcasted by SyncCoordinator
-                future.whenComplete((result, error) -> {
+                // Submit buffer to coordinator; it is verified off this transport thread.
+                // When verification fails, send Error to client. If not, the round result will be broadcasted by SyncCoordinator
+                CompletableFuture<SyncCoordinator.VerificationsResult> future = coordinator.submitBufferAndRoot(this.nodeId, upload.getRoundId(), bufferNodeId, envelopes, bufferRoot, signedBufferRoot,
+                        upload.getTraceParent());
+                future.whenComplete((verificationsResult, error) -> {
+                    Timer timer = (error == null && verificationsResult.isSuccess()) ? meters.submitOk : meters.submitRejected;
+                    timer.record(System.nanoTime() - received, TimeUnit.NANOSECONDS);
                     if (error != null) {
-                        // System.err.println("Sync round failed: " + error.getMessage());
-                        sendError("SYNC_FAILED", error.getMessage());
-                        responseObserver.onCompleted();
-                    } else if (result == null) {
-                        // System.out.println("Empty sync round. Nothing to do...");
-                    } else{
-                        // sendSyncResult(result);
+                        sendError("SUBMIT_FAILED", error.getMessage(), upload.getRoundId());
+                    } else if (SyncCoordinator.STALE_ROUND.equals(verificationsResult.getErrorCode())) {
+                        // round was restarted after a rollback (the client released it on the failed commit); a new RequestBuffer is already on its way
+                    } else if (!verificationsResult.isSuccess()) {
+                        sendError(verificationsResult.getErrorCode(), verificationsResult.getErrorMessage(), upload.getRoundId());
                     }
-
                 });
 
             } catch (Exception e) {
                 // System.err.println("Failed to submit buffer for " + bufferNodeId + ": " + e.getMessage());
-                sendError("SUBMIT_FAILED", e.getMessage());
-                responseObserver.onCompleted();
+                sendError("SUBMIT_FAILED", e.getMessage(), upload.getRoundId());
+                connection.close();
+            }
+        }
+
+        private void handlePendingStatus(PendingStatus status) {
+            if (this.nodeId == null) {
+                return; // before Hello: the stream's node is not known yet
             }
+            // the stream's node, not the claimed one: a node cannot report work for another
+            scheduler.onPendingStatus(this.nodeId, status.getPendingCount());
         }
 
         private void handleBlockAck(Ack blockAck) {
-            coordinator.receivePeerAck(blockAck.getSuccess());
+            if (coordinator != null) {
+                coordinator.receivePeerAck(this.nodeId, blockAck.getBlockNumber(), blockAck.getSuccess());
+            }
         }
 
         private void sendError(String code, String message) {
+            sendError(code, message, "");
+        }
+
+        private void sendError(String code, String message, String roundId) {
             Error error = Error.newBuilder()
                     .setCode(code)
                     .setMessage(message)
+                    .setRoundId(roundId)
                     .build();
 
             ServerMessage msg = ServerMessage.newBuilder()
                     .setError(error)
                     .build();
 
-            responseObserver.onNext(msg);
+            connection.send(msg);
         }
 
         private void handleError(Error error) {
-            System.err.println("[ERROR] " + this.nodeId + " [" + error.getCode() + "]: " + error.getMessage());
+            log.warn("Error from {} [{}]: {}", this.nodeId, error.getCode(), error.getMessage());
+        }
+
+        private synchronized void streamEnded() {
+            if (!ended) {
+                ended = true;
+                openStreams.decrementAndGet();
+            }
         }
 
         @Override
         public void onError(Throwable t) {
-            System.err.println("[ERROR] Stream error for " + this.nodeId + ": " + t.getMessage());
+            log.warn("Stream error for {}: {}", this.nodeId, t.getMessage());
+            streamEnded();
             if (registered) {
-                coordinator.unregisterClient(this.nodeId);
+                coordinator.unregisterClient(this.nodeId, connection);
+                scheduler.onDisconnect(this.nodeId);
             }
         }
 
         @Override
         public void onCompleted() {
             // System.out.println("Client " + this.nodeId + " closed connection");
+            streamEnded();
             if (registered) {
-                coordinator.unregisterClient(this.nodeId);
+                coordinator.unregisterClient(this.nodeId, connection);
+                scheduler.onDisconnect(this.nodeId);
             }
-            responseObserver.onCompleted();
+            connection.close();
         }
     }
 }
\ No newline at end of file
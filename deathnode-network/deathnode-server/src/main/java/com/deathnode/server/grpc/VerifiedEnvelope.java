@@ -0,0 +1,25 @@
+package com.deathnode.server.grpc;
+
+import com.deathnode.common.model.Envelope;
+import com.deathnode.common.util.HashUtils;
+import com.google.protobuf.ByteString;
+
+import java.time.Instant;
+
+/**
+ * Envelope of a verified buffer: received bytes, their hash and the parsed fields
+ * needed for ordering. Built once during upload verification, so finalization and
+ * persistence never parse or hash an envelope again.
+ */
+public record VerifiedEnvelope(String signerNodeId, ByteString bytes, byte[] hash, String hashHex,
+                               Envelope envelope, Instant timestamp, long sequenceNumber) {
+
+    /**
+     * @param hash SHA-256 of {@code bytes}
+     */
+    public static VerifiedEnvelope of(String signerNodeId, ByteString bytes, byte[] hash, Envelope envelope) {
+        return new VerifiedEnvelope(signerNodeId, bytes, hash, HashUtils.bytesToHex(hash), envelope,
+                Instant.parse(envelope.getMetadata().getMetadataTimestamp()),
+                envelope.getMetadata().getNodeSequenceNumber());
+    }
+}
@@ -1,8 +0,0 @@
-package com.deathnode.server.repository;
-
-import com.deathnode.server.entity.NodeSyncState;
-import org.springframework.data.jpa.repository.JpaRepository;
-
-public interface NodeSyncStateRepository extends JpaRepository<NodeSyncState, String> {
-    NodeSyncState findByNodeId(String nodeId);
-}
@@ -0,0 +1,86 @@
+package com.deathnode.server.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Read side of committed blocks, for nodes catching up on blocks they missed.
+ * <p>
+ * Recent blocks are served from the {@link RecentBlockCache}. Older ones are read back:
+ * headers from {@code signed_block_merkle_roots} (each block records the global sequence
+ * range of its envelopes) and envelopes from the memory-mapped envelope log. Block roots
+ * are not stored signed, so those are signed again with the server's key when sent.
+ */
+@Service
+public class BlockCatchUpService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerHeadService ledgerHeadService;
+    private final EnvelopeLogReader envelopeLogReader;
+    private final BlockSigningService blockSigningService;
+    private final RecentBlockCache recentBlockCache;
+
+    public BlockCatchUpService(JdbcTemplate jdbcTemplate,
+                               LedgerHeadService ledgerHeadService,
+                               EnvelopeLogReader envelopeLogReader,
+                               BlockSigningService blockSigningService,
+                               RecentBlockCache recentBlockCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ledgerHeadService = ledgerHeadService;
+        this.envelopeLogReader = envelopeLogReader;
+        this.blockSigningService = blockSigningService;
+        this.recentBlockCache = recentBlockCache;
+    }
+
+    /**
+     * Number of the last committed block of a shard (0 if none).
+     */
+    public long lastCommittedBlock(int shardId) {
+        return ledgerHeadService.shardHead(shardId).lastBlockNumber();
+    }
+
+    /**
+     * Up to {@code limit} committed blocks of a shard with numbers in {@code [from, to]}, in order.
+     */
+    public List<CommittedBlock> blocks(int shardId, long from, long to, int limit) {
+        return jdbcTemplate.query(
+                "SELECT block_number, block_root, prev_block_root, first_global_sequence, envelope_count " +
+                "FROM signed_block_merkle_roots WHERE shard_id = ? AND block_number BETWEEN ? AND ? " +
+                "ORDER BY block_number LIMIT ?",
+                (rs, i) -> new CommittedBlock(
+                        rs.getLong(1),
+                        rs.getString(2),
+                        rs.getString(3),
+                        (Long) rs.getObject(4),
+                        (Integer) rs.getObject(5)),
+                shardId, from, to, limit);
+    }
+
+    /**
+     * The block from the recent-blocks cache, or null if it has to be read back.
+     */
+    public RecentBlockCache.CachedBlock cachedBlock(int shardId, long blockNumber) {
+        return recentBlockCache.get(shardId, blockNumber);
+    }
+
+    public void recordServedFromCache(long bytes) {
+        recentBlockCache.recordServed(bytes);
+    }
+
+    public byte[] signBlockRoot(byte[] blockRoot) throws Exception {
+        return blockSigningService.sign(blockRoot);
+    }
+
+    public EnvelopeLogReader envelopes() {
+        return envelopeLogReader;
+    }
+
+    /**
+     * Committed block header. The envelope range is null for blocks stored before it was recorded.
+     */
+    public record CommittedBlock(long blockNumber, String blockRoot, String prevBlockRoot,
+                                 Long firstGlobalSequence, Integer envelopeCount) {
+    }
+}
@@ -0,0 +1,167 @@
+package com.deathnode.server.service;
+
+import com.deathnode.server.entity.SignedBlockMerkleRoot;
+import com.deathnode.server.grpc.VerifiedEnvelope;
+import com.deathnode.server.service.EnvelopeLogStore.Locator;
+import com.deathnode.server.service.LedgerHeadService.LedgerHead;
+import com.deathnode.server.service.SpeculativeChainState.ChainHead;
+import com.google.protobuf.ByteString;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Types;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persists a committed block in a single transaction.
+ * <p>
+ * Reports are written with JDBC batch inserts, each signer's chain head is updated
+ * once (with its last envelope in the block), and the block root is inserted once,
+ * so the number of statements grows with the number of signers, not of envelopes.
+ * Envelopes are appended to the {@link EnvelopeLogStore} (one fsync per block) before
+ * the transaction; envelopes left in the log by a failed attempt are reused when the
+ * block is retried, and each report's file_path holds the envelope's log locator. Global sequence numbers come from the
+ * {@link LedgerHeadService}, which is moved forward in the same transaction. Once the
+ * transaction commits, the new ledger head, chain heads and envelope read index are published.
+ * <p>
+ * Shards finalize blocks independently, but their commits go through here one at a time:
+ * that is what places each shard block in the top-level chain and gives its envelopes
+ * contiguous global sequence numbers.
+ */
+@Service
+public class BlockPersistenceService {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockPersistenceService.class);
+
+    private static final String INSERT_REPORT =
+            "INSERT INTO reports(envelope_hash, signer_node_id, node_sequence_number, global_sequence_number, " +
+            "metadata_timestamp, prev_report_hash, file_path) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPSERT_NODE_STATE =
+            "INSERT INTO nodes_sync_state(node_id, last_sequence_number, last_envelope_hash) VALUES (?, ?, ?) " +
+            "ON CONFLICT (node_id) DO UPDATE SET last_sequence_number = EXCLUDED.last_sequence_number, " +
+            "last_envelope_hash = EXCLUDED.last_envelope_hash";
+    private static final String INSERT_BLOCK_ROOT =
+            "INSERT INTO signed_block_merkle_roots(shard_id, block_number, block_root, prev_block_root, first_global_sequence, " +
+            "envelope_count, global_block_number, global_root) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EnvelopeLogStore envelopeLogStore;
+    private final EnvelopeLogReader envelopeLogReader;
+    private final NodeChainCache nodeChainCache;
+    private final LedgerHeadService ledgerHeadService;
+
+    @Value("${sync.persist.batch-size:500}")
+    private int batchSize;
+
+    public BlockPersistenceService(JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   EnvelopeLogStore envelopeLogStore,
+                                   EnvelopeLogReader envelopeLogReader,
+                                   NodeChainCache nodeChainCache,
+                                   LedgerHeadService ledgerHeadService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.envelopeLogStore = envelopeLogStore;
+        this.envelopeLogReader = envelopeLogReader;
+        this.nodeChainCache = nodeChainCache;
+        this.ledgerHeadService = ledgerHeadService;
+    }
+
+    /**
+     * Append the envelopes to the log and write the whole block (reports, chain heads, block root)
+     * in one transaction. Throws if anything fails; nothing of the block is then in the database.
+     */
+    public synchronized void persistBlock(List<VerifiedEnvelope> envelopes, SignedBlockMerkleRoot root) {
+        List<Locator> locators = appendToLog(envelopes);
+
+        // last envelope of each signer in the block = its new chain head
+        Map<String, VerifiedEnvelope> heads = new LinkedHashMap<>();
+        for (VerifiedEnvelope meta : envelopes) {
+            heads.put(meta.signerNodeId(), meta);
+        }
+
+        LedgerHead newHead = transactionTemplate.execute(status -> {
+            long firstGlobalSeq = ledgerHeadService.head().nextGlobalSequence();
+            LedgerHead next = ledgerHeadService.advance(envelopes.size(), root);
+
+            List<Object[]> reportRows = new ArrayList<>(envelopes.size());
+            for (int i = 0; i < envelopes.size(); i++) {
+                VerifiedEnvelope meta = envelopes.get(i);
+                reportRows.add(new Object[]{
+                        meta.hashHex(),
+                        meta.signerNodeId(),
+                        meta.sequenceNumber(),
+                        firstGlobalSeq + i,
+                        OffsetDateTime.ofInstant(meta.timestamp(), ZoneOffset.UTC),
+                        meta.envelope().getMetadata().getPrevEnvelopeHash(),
+                        locators.get(i).toString()
+                });
+            }
+            int[] reportTypes = {Types.VARCHAR, Types.VARCHAR, Types.BIGINT, Types.BIGINT,
+                    Types.TIMESTAMP_WITH_TIMEZONE, Types.VARCHAR, Types.VARCHAR};
+            for (int from = 0; from < reportRows.size(); from += batchSize) {
+                jdbcTemplate.batchUpdate(INSERT_REPORT, reportRows.subList(from, Math.min(from + batchSize, reportRows.size())), reportTypes);
+            }
+
+            List<Object[]> headRows = new ArrayList<>(heads.size());
+            for (VerifiedEnvelope head : heads.values()) {
+                headRows.add(new Object[]{
+                        head.signerNodeId(),
+                        head.sequenceNumber(),
+                        head.hashHex()
+                });
+            }
+            jdbcTemplate.batchUpdate(UPSERT_NODE_STATE, headRows, new int[]{Types.VARCHAR, Types.BIGINT, Types.VARCHAR});
+
+            jdbcTemplate.update(INSERT_BLOCK_ROOT, root.getShardId(), root.getBlockNumber(), root.getBlockRoot(), root.getPrevBlockRoot(),
+                    firstGlobalSeq, envelopes.size(), next.lastBlockNumber(), next.lastBlockRoot());
+            return next;
+        });
+        // envelopes readable before the head moves, so a reader that sees the block can fetch them
+        envelopeLogReader.onBlockCommitted(newHead.nextGlobalSequence() - envelopes.size(), locators);
+        ledgerHeadService.publish(newHead, root);
+
+        Map<String, ChainHead> committedHeads = new LinkedHashMap<>();
+        for (VerifiedEnvelope head : heads.values()) {
+            committedHeads.put(head.signerNodeId(),
+                    new ChainHead(head.sequenceNumber(), head.hashHex()));
+        }
+        nodeChainCache.commit(committedHeads);
+
+        log.atInfo().setMessage("Persisted block")
+                .addKeyValue("block", root.getBlockNumber())
+                .addKeyValue("shard", root.getShardId())
+                .addKeyValue("global_block", newHead.lastBlockNumber())
+                .addKeyValue("envelopes", envelopes.size())
+                .addKeyValue("signers", heads.size())
+                .log();
+    }
+
+    private List<Locator> appendToLog(List<VerifiedEnvelope> envelopes) {
+        List<byte[]> hashes = new ArrayList<>(envelopes.size());
+        List<ByteString> data = new ArrayList<>(envelopes.size());
+        for (VerifiedEnvelope meta : envelopes) {
+            hashes.add(meta.hash());
+            data.add(meta.bytes());
+        }
+
+        try {
+            return envelopeLogStore.append(hashes, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append block envelopes to the log", e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.deathnode.server.service;
+
+import com.deathnode.tool.util.KeyLoader;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Server-side Ed25519 signing and verification with keys held in memory.
+ * <p>
+ * The block-signing key is loaded from the keystore once and kept with a ready
+ * {@link Signature}; node public keys are parsed once per PEM. The keystore is
+ * watched (modification time) and the key is swapped in place when it is rotated.
+ */
+@Service
+public class BlockSigningService {
+
+    private static final Logger log = LoggerFactory.getLogger(BlockSigningService.class);
+
+    private static final String ED25519 = "Ed25519";
+
+    @Value("${keystore_path}")
+    private String keystorePath;
+    @Value("${keystore_password}")
+    private String keystorePassword;
+    @Value("${ed_private_key_alias}")
+    private String edPrivateKeyAlias;
+    @Value("${signing.reload-check-ms:10000}")
+    private long reloadCheckMs;
+
+    private final Map<String, PublicKey> publicKeys = new ConcurrentHashMap<>();
+    private final ThreadLocal<Signature> verifiers = ThreadLocal.withInitial(BlockSigningService::newSignature);
+    private final ScheduledExecutorService reloadExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "signing-key-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // guarded by "this": one signer, re-initialized only when the key changes
+    private Signature signer;
+    private FileTime loadedKeystoreTime;
+
+    private final LongAdder signCount = new LongAdder();
+    private final LongAdder signNanos = new LongAdder();
+    private final LongAdder verifyCount = new LongAdder();
+    private final LongAdder verifyFailures = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final LongAdder keyReloads = new LongAdder();
+
+    @PostConstruct
+    public void start() throws Exception {
+        reload();
+        reloadExecutor.scheduleWithFixedDelay(this::reloadIfChanged, reloadCheckMs, reloadCheckMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        reloadExecutor.shutdownNow();
+    }
+
+    /**
+     * Sign data with the server's block-signing key.
+     */
+    public synchronized byte[] sign(byte[] data) throws Exception {
+        long start = System.nanoTime();
+        signer.update(data);
+        byte[] signature = signer.sign(); // resets the signer to its initialized state
+        signNanos.add(System.nanoTime() - start);
+        signCount.increment();
+        return signature;
+    }
+
+    /**
+     * Verify an Ed25519 signature with a node's PEM public key (parsed once, then cached).
+     */
+    public boolean verify(byte[] data, byte[] signature, String publicKeyPem) throws Exception {
+        long start = System.nanoTime();
+        PublicKey publicKey = publicKeys.get(publicKeyPem);
+        if (publicKey == null) {
+            publicKey = KeyLoader.pemStringToPublicKey(publicKeyPem, ED25519);
+            publicKeys.put(publicKeyPem, publicKey);
+        }
+
+        Signature verifier = verifiers.get();
+        verifier.initVerify(publicKey);
+        verifier.update(data);
+        boolean valid = verifier.verify(signature);
+
+        verifyNanos.add(System.nanoTime() - start);
+        verifyCount.increment();
+        if (!valid) {
+            verifyFailures.increment();
+        }
+        return valid;
+    }
+
+    /**
+     * Load the key from the keystore and swap it in.
+     */
+    public synchronized void reload() throws Exception {
+        FileTime keystoreTime = Files.getLastModifiedTime(Path.of(keystorePath));
+        PrivateKey key = KeyLoader.loadPrivateKeyFromKeystore(edPrivateKeyAlias, keystorePath, keystorePassword);
+
+        Signature fresh = newSignature();
+        fresh.initSign(key);
+        signer = fresh;
+        loadedKeystoreTime = keystoreTime;
+        keyReloads.increment();
+        log.info("Block-signing key loaded from {}", keystorePath);
+    }
+
+    private void reloadIfChanged() {
+        try {
+            FileTime keystoreTime = Files.getLastModifiedTime(Path.of(keystorePath));
+            boolean changed;
+            synchronized (this) {
+                changed = !keystoreTime.equals(loadedKeystoreTime);
+            }
+            if (changed) {
+                reload();
+            }
+        } catch (Exception e) {
+            // keep signing with the current key until the keystore is readable again
+            log.warn("Failed to reload block-signing key: {}", e.getMessage());
+        }
+    }
+
+    private static Signature newSignature() {
+        try {
+            return Signature.getInstance(ED25519);
+        } catch (Exception e) {
+            throw new IllegalStateException("Ed25519 not available", e);
+        }
+    }
+
+    public SigningStats getStats() {
+        long signs = signCount.sum();
+        long verifies = verifyCount.sum();
+        return new SigningStats(
+                signs,
+                signs == 0 ? 0 : signNanos.sum() / signs / 1000,
+                verifies,
+                verifyFailures.sum(),
+                verifies == 0 ? 0 : verifyNanos.sum() / verifies / 1000,
+                keyReloads.sum());
+    }
+
+    public record SigningStats(long signCount, long avgSignMicros, long verifyCount, long verifyFailures,
+                               long avgVerifyMicros, long keyReloads) {
+    }
+}
@@ -0,0 +1,110 @@
+package com.deathnode.server.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Single-writer event loop.
+ * <p>
+ * Events can be posted from any thread (lock-free), but they are consumed, in order,
+ * by one dedicated thread. State that is only touched from the handler therefore
+ * needs no locking at all.
+ * <p>
+ * An exception thrown by the handler is logged and the event is passed to the failure
+ * callback (to fail any reply it carries); the loop goes on with the next event. An
+ * {@link Error} (out of memory, stack overflow...) leaves the handler's state undefined,
+ * so it stops the loop: the event, the ones still queued and any posted later are failed,
+ * and the error is rethrown to the thread's uncaught exception handler.
+ */
+public class CoordinatorEventLoop<E> {
+
+    private static final Logger log = LoggerFactory.getLogger(CoordinatorEventLoop.class);
+
+    private final Queue<E> queue = new ConcurrentLinkedQueue<>();
+    private final Consumer<E> handler;
+    private final BiConsumer<E, Throwable> onFailure;
+    private final Thread thread;
+    private volatile boolean running = false;
+    private volatile Throwable fatal = null;
+
+    public CoordinatorEventLoop(String name, Consumer<E> handler, BiConsumer<E, Throwable> onFailure) {
+        this.handler = handler;
+        this.onFailure = onFailure;
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    public void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Enqueue an event and wake up the loop thread. If the loop died, the event is failed right away.
+     */
+    public void post(E event) {
+        queue.offer(event);
+        LockSupport.unpark(thread);
+        if (fatal != null) {
+            failQueued();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            E event = queue.poll();
+            if (event == null) {
+                LockSupport.park(this);
+                continue;
+            }
+
+            try {
+                handler.accept(event);
+            } catch (Exception e) {
+                log.atError().setMessage("Failed to handle event")
+                        .addKeyValue("loop", thread.getName())
+                        .addKeyValue("event", event.getClass().getSimpleName())
+                        .setCause(e)
+                        .log();
+                fail(event, e);
+            } catch (Error e) {
+                log.atError().setMessage("Event loop stopped by an unrecoverable error")
+                        .addKeyValue("loop", thread.getName())
+                        .addKeyValue("event", event.getClass().getSimpleName())
+                        .setCause(e)
+                        .log();
+                running = false;
+                fatal = e;
+                fail(event, e);
+                failQueued();
+                throw e;
+            }
+        }
+    }
+
+    private void failQueued() {
+        E event;
+        while ((event = queue.poll()) != null) {
+            fail(event, new IllegalStateException("Event loop " + thread.getName() + " stopped", fatal));
+        }
+    }
+
+    private void fail(E event, Throwable cause) {
+        try {
+            onFailure.accept(event, cause);
+        } catch (RuntimeException e) {
+            log.warn("Failure callback for {} threw: {}", event.getClass().getSimpleName(), e.getMessage());
+        }
+    }
+}
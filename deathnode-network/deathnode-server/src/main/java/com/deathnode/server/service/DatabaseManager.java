@@ -1,5 +1,7 @@
 package com.deathnode.server.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -15,6 +17,8 @@ import java.nio.file.Path;
 @Service
 public class DatabaseManager {
 
+    private static final Logger log = LoggerFactory.getLogger(DatabaseManager.class);
+
     private final Path envelopesPath;
     private final JdbcTemplate jdbcTemplate;
 
@@ -32,15 +36,16 @@ public class DatabaseManager {
      */
     @Transactional
     public void reinitializeDatabase() throws IOException {
-        System.out.println("Starting database reinitialization...");
+        log.info("Starting database reinitialization");
 
         try {
-            System.out.println("Dropping tables...");
+            log.debug("Dropping tables");
+            jdbcTemplate.execute("DROP TABLE IF EXISTS ledger_head");
             jdbcTemplate.execute("DROP TABLE IF EXISTS signed_block_merkle_roots");
             jdbcTemplate.execute("DROP TABLE IF EXISTS reports");
             jdbcTemplate.execute("DROP TABLE IF EXISTS nodes_sync_state");
 
-            System.out.println("Creating nodes_sync_state table...");
+            log.debug("Creating nodes_sync_state table");
             jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS nodes_sync_state (\n" +
                     "    node_id                 VARCHAR(255)                PRIMARY KEY,\n" +
                     "    last_sequence_number    BIGINT,\n" +
@@ -48,7 +53,7 @@ public class DatabaseManager {
                     "    FOREIGN KEY (node_id) REFERENCES nodes(node_id)\n" +
                     ")");
 
-            System.out.println("Creating reports table...");
+            log.debug("Creating reports table");
             jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS reports (\n" +
                     "    envelope_hash           VARCHAR(64)                 PRIMARY KEY,\n" +
                     "    signer_node_id          VARCHAR(255)                NOT NULL,\n" +
@@ -61,55 +66,70 @@ public class DatabaseManager {
                     "    FOREIGN KEY (signer_node_id) REFERENCES nodes(node_id)\n" +
                     ")");
 
-            System.out.println("Creating signed_block_merkle_roots table...");
+            log.debug("Creating signed_block_merkle_roots table");
             jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS signed_block_merkle_roots (\n" +
                     "    block_id                    BIGSERIAL                   PRIMARY KEY,\n" +
-                    "    block_number                BIGINT                      NOT NULL        UNIQUE,\n" +
+                    "    shard_id                    INT                         NOT NULL        DEFAULT 0,\n" +
+                    "    block_number                BIGINT                      NOT NULL,\n" +
                     "    block_root                  VARCHAR(64)                 NOT NULL        UNIQUE,\n" +
-                    "    prev_block_root             VARCHAR(64)\n" +
+                    "    prev_block_root             VARCHAR(64),\n" +
+                    "    first_global_sequence       BIGINT,\n" +
+                    "    envelope_count              INT,\n" +
+                    "    global_block_number         BIGINT                      UNIQUE,\n" +
+                    "    global_root                 VARCHAR(64),\n" +
+                    "    UNIQUE (shard_id, block_number)\n" +
+                    ")");
+
+            log.debug("Creating ledger_head table");
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS ledger_head (\n" +
+                    "    id                          SMALLINT                    PRIMARY KEY     CHECK (id = 1),\n" +
+                    "    next_global_sequence        BIGINT                      NOT NULL,\n" +
+                    "    last_block_number           BIGINT                      NOT NULL,\n" +
+                    "    last_block_root             VARCHAR(64)\n" +
                     ")");
+            jdbcTemplate.update("INSERT INTO ledger_head(id, next_global_sequence, last_block_number, last_block_root) VALUES (1, 1, 0, NULL)");
 
-            System.out.println("Inserting initial nodes_sync_state...");
+            log.debug("Inserting initial nodes_sync_state");
             jdbcTemplate.update("INSERT INTO nodes_sync_state(node_id, last_sequence_number, last_envelope_hash) VALUES (?, ?, ?)",
                     "nodeA", null, null);
             jdbcTemplate.update("INSERT INTO nodes_sync_state(node_id, last_sequence_number, last_envelope_hash) VALUES (?, ?, ?)",
                     "nodeB", null, null);
 
         } catch (Exception e) {
-            System.err.println("Error during database reinitialization: " + e.getMessage());
             throw new RuntimeException("Failed to reinitialize database", e);
         }
 
-        System.out.println("Deleting envelope files from " + envelopesPath + "...");
+        log.info("Deleting envelope files from {}", envelopesPath);
         deleteAllEnvelopes();
 
-        System.out.println("Database reinitialization completed successfully");
+        log.info("Database reinitialization completed");
     }
 
     /**
      * Delete all envelope files from node-specific directories.
-     * Removes all directories matching pattern "*_envelopes" under the base path.
+     * Removes all directories matching pattern "*_envelopes" and the envelope log under the base path.
      */
     private void deleteAllEnvelopes() throws IOException {
         if (!Files.exists(envelopesPath)) {
-            System.out.println("Envelopes directory does not exist: " + envelopesPath);
+            log.info("Envelopes directory does not exist: {}", envelopesPath);
             return;
         }
 
         try (var stream = Files.list(envelopesPath)) {
             stream.forEach(path -> {
                 try {
-                    // Delete directories matching *_envelopes pattern
-                    if (Files.isDirectory(path) && path.getFileName().toString().endsWith("_envelopes")) {
+                    // Delete directories matching *_envelopes pattern, and the envelope log
+                    if (Files.isDirectory(path) && (path.getFileName().toString().endsWith("_envelopes")
+                            || path.getFileName().toString().equals(EnvelopeLogStore.LOG_DIR))) {
                         deleteDirectory(path);
-                        System.out.println("Deleted envelope directory: " + path.getFileName());
+                        log.debug("Deleted envelope directory: {}", path.getFileName());
                     } else if (Files.isRegularFile(path)) {
                         // Also clean up any stray files in base directory
                         Files.delete(path);
-                        System.out.println("Deleted envelope file: " + path.getFileName());
+                        log.debug("Deleted envelope file: {}", path.getFileName());
                     }
                 } catch (IOException e) {
-                    System.err.println("Failed to delete " + path.getFileName() + ": " + e.getMessage());
+                    log.warn("Failed to delete {}: {}", path.getFileName(), e.getMessage());
                 }
             });
         }
@@ -125,7 +145,7 @@ public class DatabaseManager {
                         try {
                             Files.delete(path);
                         } catch (IOException e) {
-                            System.err.println("Failed to delete " + path + ": " + e.getMessage());
+                            log.warn("Failed to delete {}: {}", path, e.getMessage());
                         }
                     });
         }
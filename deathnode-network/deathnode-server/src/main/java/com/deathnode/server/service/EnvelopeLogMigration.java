@@ -0,0 +1,90 @@
+package com.deathnode.server.service;
+
+import com.deathnode.common.util.HashUtils;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports envelopes stored one file per envelope into the {@link EnvelopeLogStore}.
+ * <p>
+ * Reports whose file_path is still a plain path are processed in global sequence order,
+ * a batch at a time: the files are read and checked against their hash, appended to the
+ * log (one fsync per batch) and the reports are pointed at the new locators. Safe to
+ * re-run after a failure, since envelopes already in the log are not appended again.
+ */
+@Service
+public class EnvelopeLogMigration {
+
+    private static final Logger log = LoggerFactory.getLogger(EnvelopeLogMigration.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EnvelopeLogStore envelopeLogStore;
+
+    @Value("${storage.log.migration-batch-size:1000}")
+    private int batchSize;
+    @Value("${storage.log.delete-migrated-files:false}")
+    private boolean deleteMigratedFiles;
+
+    public EnvelopeLogMigration(JdbcTemplate jdbcTemplate, EnvelopeLogStore envelopeLogStore) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.envelopeLogStore = envelopeLogStore;
+    }
+
+    /**
+     * Migrate every report still stored as a file.
+     *
+     * @return number of envelopes migrated
+     */
+    public int migrate() throws IOException {
+        int migrated = 0;
+        while (true) {
+            List<String[]> rows = jdbcTemplate.query(
+                    "SELECT envelope_hash, file_path FROM reports WHERE file_path NOT LIKE 'log:%' " +
+                    "ORDER BY global_sequence_number NULLS LAST, envelope_hash LIMIT ?",
+                    (rs, i) -> new String[]{rs.getString(1), rs.getString(2)},
+                    batchSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+
+            List<byte[]> hashes = new ArrayList<>(rows.size());
+            List<ByteString> data = new ArrayList<>(rows.size());
+            for (String[] row : rows) {
+                byte[] bytes = Files.readAllBytes(Path.of(row[1]));
+                byte[] hash = HashUtils.sha256(bytes);
+                if (!HashUtils.bytesToHex(hash).equals(row[0])) {
+                    throw new IllegalStateException("Envelope file " + row[1] + " does not match its hash " + row[0]);
+                }
+                hashes.add(hash);
+                data.add(UnsafeByteOperations.unsafeWrap(bytes));
+            }
+
+            List<EnvelopeLogStore.Locator> locators = envelopeLogStore.append(hashes, data);
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                updates.add(new Object[]{locators.get(i).toString(), rows.get(i)[0]});
+            }
+            jdbcTemplate.batchUpdate("UPDATE reports SET file_path = ? WHERE envelope_hash = ?", updates);
+
+            if (deleteMigratedFiles) {
+                for (String[] row : rows) {
+                    Files.deleteIfExists(Path.of(row[1]));
+                }
+            }
+            migrated += rows.size();
+            log.info("Envelope log migration: {} envelope(s) imported", migrated);
+        }
+        return migrated;
+    }
+}
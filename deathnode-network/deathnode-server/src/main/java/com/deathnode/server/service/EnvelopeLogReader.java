@@ -0,0 +1,192 @@
+package com.deathnode.server.service;
+
+import com.deathnode.server.service.EnvelopeLogStore.Locator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read path of the envelope log: segments are memory-mapped and envelopes are served as
+ * read-only {@link ByteBuffer} slices of those mappings, without a syscall or copy per read.
+ * <p>
+ * Lookups go through in-memory indexes: by hash (the log's own index) and by global
+ * sequence number (loaded from the reports at startup and extended as blocks commit).
+ * The active segment keeps growing, so its mapping is redone when a record lies past
+ * its end.
+ */
+@Service
+public class EnvelopeLogReader {
+
+    private static final Logger log = LoggerFactory.getLogger(EnvelopeLogReader.class);
+
+    private final EnvelopeLogStore envelopeLogStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Integer, MappedByteBuffer> mappings = new ConcurrentHashMap<>();
+    private volatile SequenceIndex sequenceIndex = SequenceIndex.EMPTY;
+
+    public EnvelopeLogReader(EnvelopeLogStore envelopeLogStore, JdbcTemplate jdbcTemplate) {
+        this.envelopeLogStore = envelopeLogStore;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Build the global sequence index from the reports stored in the log. Called at startup,
+     * after the log is opened.
+     */
+    public synchronized void load() {
+        mappings.clear();
+        SequenceIndex[] building = {SequenceIndex.EMPTY};
+        jdbcTemplate.query(
+                "SELECT global_sequence_number, file_path FROM reports " +
+                "WHERE global_sequence_number IS NOT NULL AND file_path LIKE 'log:%' ORDER BY global_sequence_number",
+                rs -> {
+                    building[0] = building[0].with(rs.getLong(1), Locator.parse(rs.getString(2)));
+                });
+        sequenceIndex = building[0];
+        log.info("Envelope log reader: {} envelope(s) indexed by global sequence", sequenceIndex.size);
+    }
+
+    /**
+     * Index the envelopes of a block that was just committed.
+     *
+     * @param firstGlobalSeq global sequence number of the block's first envelope
+     */
+    public synchronized void onBlockCommitted(long firstGlobalSeq, List<Locator> locators) {
+        SequenceIndex index = sequenceIndex;
+        for (int i = 0; i < locators.size(); i++) {
+            index = index.with(firstGlobalSeq + i, locators.get(i));
+        }
+        sequenceIndex = index;
+    }
+
+    /**
+     * Envelope with the given hash, or null if it is not in the log.
+     */
+    public ByteBuffer getByHash(String hashHex) {
+        Locator locator = envelopeLogStore.locate(hashHex);
+        return (locator == null) ? null : slice(locator);
+    }
+
+    /**
+     * Envelope with the given global sequence number, or null if none is in the log.
+     */
+    public ByteBuffer getByGlobalSequence(long globalSeq) {
+        Locator locator = sequenceIndex.get(globalSeq);
+        return (locator == null) ? null : slice(locator);
+    }
+
+    /**
+     * Highest global sequence number indexed, or 0 if none.
+     */
+    public long lastGlobalSequence() {
+        return sequenceIndex.size;
+    }
+
+    /**
+     * Visit the envelopes with global sequence numbers in {@code [from, toExclusive)}, in
+     * order, until the visitor returns false. Sequence numbers not in the log are skipped.
+     */
+    public void forEachInRange(long from, long toExclusive, EnvelopeVisitor visitor) {
+        SequenceIndex index = sequenceIndex;
+        long end = Math.min(toExclusive, index.size + 1);
+        for (long seq = Math.max(from, 1); seq < end; seq++) {
+            Locator locator = index.get(seq);
+            if (locator != null && !visitor.visit(seq, slice(locator))) {
+                return;
+            }
+        }
+    }
+
+    private ByteBuffer slice(Locator locator) {
+        MappedByteBuffer mapping = mappings.get(locator.segment());
+        if (mapping == null || mapping.capacity() < locator.offset() + locator.length()) {
+            mapping = map(locator.segment());
+        }
+        return mapping.slice((int) locator.offset(), locator.length());
+    }
+
+    private MappedByteBuffer map(int segment) {
+        return mappings.compute(segment, (number, current) -> {
+            try (FileChannel channel = FileChannel.open(envelopeLogStore.segmentPath(number), StandardOpenOption.READ)) {
+                long size = channel.size();
+                if (current != null && current.capacity() >= size) {
+                    return current;
+                }
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map envelope log segment " + number, e);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    public interface EnvelopeVisitor {
+        /**
+         * @return false to stop the iteration
+         */
+        boolean visit(long globalSeq, ByteBuffer envelope);
+    }
+
+    /**
+     * Locators by global sequence number (position = sequence - 1) in primitive arrays. The arrays
+     * are grown with spare capacity and shared between snapshots; a snapshot only reads its
+     * first {@code size} entries, which never change once published. Segment 0 marks a gap.
+     */
+    private static final class SequenceIndex {
+
+        static final SequenceIndex EMPTY = new SequenceIndex(new int[0], new long[0], new int[0], 0);
+
+        final int[] segments;
+        final long[] offsets;
+        final int[] lengths;
+        final long size;
+
+        SequenceIndex(int[] segments, long[] offsets, int[] lengths, long size) {
+            this.segments = segments;
+            this.offsets = offsets;
+            this.lengths = lengths;
+            this.size = size;
+        }
+
+        Locator get(long globalSeq) {
+            if (globalSeq < 1 || globalSeq > size) {
+                return null;
+            }
+            int i = (int) (globalSeq - 1);
+            return (segments[i] == 0) ? null : new Locator(segments[i], offsets[i], lengths[i]);
+        }
+
+        SequenceIndex with(long globalSeq, Locator locator) {
+            if (globalSeq <= size) {
+                throw new IllegalStateException("Global sequence " + globalSeq + " already indexed");
+            }
+            int i = Math.toIntExact(globalSeq - 1);
+            int[] segs = segments;
+            long[] offs = offsets;
+            int[] lens = lengths;
+            if (i >= segs.length) {
+                int capacity = Math.max(i + 1, Math.max(1024, segs.length * 2));
+                segs = Arrays.copyOf(segs, capacity);
+                offs = Arrays.copyOf(offs, capacity);
+                lens = Arrays.copyOf(lens, capacity);
+            }
+            // entries between the old size and i stay 0 (gap)
+            segs[i] = locator.segment();
+            offs[i] = locator.offset();
+            lens[i] = locator.length();
+            return new SequenceIndex(segs, offs, lens, globalSeq);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.deathnode.server.service;
+
+import com.deathnode.common.util.HashUtils;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Append-only envelope storage in rolling segment files.
+ * <p>
+ * Each record is {@code [length:int][sha256:32][envelope bytes]}, appended to the current
+ * segment until it reaches {@code storage.log.segment-bytes}. An index file holds one
+ * fixed-size entry per record (hash, segment, offset, length) and is loaded into memory
+ * at startup. A batch (one block) is written with one fsync of the segment and one of
+ * the index. Records written after the last indexed one (crash before the index fsync)
+ * are re-indexed from their headers when the store is opened; a torn record at the end
+ * is cut off.
+ * <p>
+ * A stored envelope is addressed by a {@link Locator}, kept in {@code reports.file_path}.
+ */
+@Service
+public class EnvelopeLogStore {
+
+    private static final Logger log = LoggerFactory.getLogger(EnvelopeLogStore.class);
+
+    public static final String LOG_DIR = "envelope-log";
+    private static final String INDEX_FILE = "envelopes.idx";
+    private static final int HASH_BYTES = 32;
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES + HASH_BYTES;
+    private static final int INDEX_ENTRY_BYTES = HASH_BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final Path logDir;
+    private final long segmentBytes;
+    private final Map<String, Locator> index = new ConcurrentHashMap<>();
+
+    // guarded by "this"
+    private FileChannel segment;
+    private int segmentNumber;
+    private FileChannel indexChannel;
+
+    public EnvelopeLogStore(@Value("${storage.envelopes-path}") String baseDir,
+                            @Value("${storage.log.segment-bytes:67108864}") long segmentBytes) {
+        // records are read through int-indexed mappings (see EnvelopeLogReader), so offsets must fit an int
+        if (segmentBytes <= 0 || segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("storage.log.segment-bytes must be between 1 and " + Integer.MAX_VALUE + ", got " + segmentBytes);
+        }
+        this.logDir = Path.of(baseDir).resolve(LOG_DIR);
+        this.segmentBytes = segmentBytes;
+    }
+
+    /**
+     * Open the log: load the index, re-index any unindexed records at the end of the last
+     * segment and open it for appending. Called at startup, after the storage reset.
+     */
+    public synchronized void open() throws IOException {
+        close();
+        index.clear();
+        Files.createDirectories(logDir);
+
+        indexChannel = FileChannel.open(logDir.resolve(INDEX_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        loadIndex();
+
+        segmentNumber = lastSegmentNumber();
+        segment = FileChannel.open(segmentPath(segmentNumber),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recoverTail();
+
+        log.info("Envelope log opened: {} envelope(s), segment {}", index.size(), segmentNumber);
+    }
+
+    /**
+     * Append a batch of envelopes and make it durable (one fsync for the segment, one for the
+     * index). Envelopes already in the log are not written again.
+     *
+     * @param hashes SHA-256 of each envelope, same order as {@code envelopes}
+     * @return locator of each envelope, same order
+     */
+    public synchronized List<Locator> append(List<byte[]> hashes, List<ByteString> envelopes) throws IOException {
+        if (segment == null) {
+            throw new IllegalStateException("Envelope log is not open");
+        }
+
+        List<Locator> locators = new ArrayList<>(envelopes.size());
+        ByteBuffer indexEntries = ByteBuffer.allocate(envelopes.size() * INDEX_ENTRY_BYTES);
+        for (int i = 0; i < envelopes.size(); i++) {
+            byte[] hash = hashes.get(i);
+            Locator existing = index.get(HashUtils.bytesToHex(hash));
+            if (existing != null) {
+                locators.add(existing);
+                continue;
+            }
+
+            ByteString data = envelopes.get(i);
+            if (segment.size() > 0 && segment.size() + RECORD_HEADER_BYTES + data.size() > segmentBytes) {
+                rollSegment();
+            }
+
+            long recordStart = segment.size();
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES).putInt(data.size()).put(hash).flip();
+            writeFully(segment, header, recordStart);
+            long position = recordStart + RECORD_HEADER_BYTES;
+            for (ByteBuffer chunk : data.asReadOnlyByteBufferList()) {
+                position += writeFully(segment, chunk, position);
+            }
+
+            Locator locator = new Locator(segmentNumber, recordStart + RECORD_HEADER_BYTES, data.size());
+            putIndexEntry(indexEntries, hash, locator);
+            index.put(HashUtils.bytesToHex(hash), locator);
+            locators.add(locator);
+        }
+
+        // group commit: records first, then the index entries pointing at them
+        segment.force(false);
+        if (indexEntries.position() > 0) {
+            indexEntries.flip();
+            writeFully(indexChannel, indexEntries, indexChannel.size());
+            indexChannel.force(false);
+        }
+        return locators;
+    }
+
+    /**
+     * Locator of a stored envelope, or null if it is not in the log.
+     */
+    public Locator locate(String hashHex) {
+        return index.get(hashHex);
+    }
+
+    /**
+     * Read an envelope by locator. Legacy values of {@code reports.file_path} (plain file
+     * paths) are read from the file.
+     */
+    public ByteString read(String locatorOrPath) throws IOException {
+        if (!Locator.isLocator(locatorOrPath)) {
+            return UnsafeByteOperations.unsafeWrap(Files.readAllBytes(Path.of(locatorOrPath)));
+        }
+        Locator locator = Locator.parse(locatorOrPath);
+        try (FileChannel channel = FileChannel.open(segmentPath(locator.segment()), StandardOpenOption.READ)) {
+            ByteBuffer data = ByteBuffer.allocate(locator.length());
+            while (data.hasRemaining()) {
+                if (channel.read(data, locator.offset() + data.position()) < 0) {
+                    throw new IOException("Truncated envelope record at " + locator);
+                }
+            }
+            return UnsafeByteOperations.unsafeWrap(data.array());
+        }
+    }
+
+    public Path segmentPath(int number) {
+        return logDir.resolve(String.format("segment-%06d.log", number));
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (segment != null) {
+            segment.close();
+            segment = null;
+        }
+        if (indexChannel != null) {
+            indexChannel.close();
+            indexChannel = null;
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        segment.force(false);
+        segment.close();
+        segmentNumber++;
+        segment = FileChannel.open(segmentPath(segmentNumber),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private void loadIndex() throws IOException {
+        long complete = indexChannel.size() - (indexChannel.size() % INDEX_ENTRY_BYTES);
+        ByteBuffer entries = ByteBuffer.allocate((int) Math.min(complete, 1 << 20) / INDEX_ENTRY_BYTES * INDEX_ENTRY_BYTES);
+        long position = 0;
+        while (position < complete) {
+            entries.clear().limit((int) Math.min(entries.capacity(), complete - position));
+            while (entries.hasRemaining()) {
+                indexChannel.read(entries, position + entries.position());
+            }
+            entries.flip();
+            while (entries.hasRemaining()) {
+                byte[] hash = new byte[HASH_BYTES];
+                entries.get(hash);
+                index.put(HashUtils.bytesToHex(hash), new Locator(entries.getInt(), entries.getLong(), entries.getInt()));
+            }
+            position += entries.limit();
+        }
+        // drop a torn entry from a crash while writing the index
+        indexChannel.truncate(complete);
+    }
+
+    private int lastSegmentNumber() throws IOException {
+        int last = 1;
+        try (var files = Files.list(logDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String name = file.getFileName().toString();
+                if (name.startsWith("segment-") && name.endsWith(".log")) {
+                    last = Math.max(last, Integer.parseInt(name.substring("segment-".length(), name.length() - ".log".length())));
+                }
+            }
+        }
+        return last;
+    }
+
+    /**
+     * Index the complete records after the last indexed one in the current segment and cut
+     * off a torn record at its end.
+     */
+    private void recoverTail() throws IOException {
+        long position = 0;
+        for (Locator locator : index.values()) {
+            if (locator.segment() == segmentNumber) {
+                position = Math.max(position, locator.offset() + locator.length());
+            }
+        }
+
+        long size = segment.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        ByteBuffer indexEntries = ByteBuffer.allocate(INDEX_ENTRY_BYTES);
+        int recovered = 0;
+        while (position + RECORD_HEADER_BYTES <= size) {
+            header.clear();
+            while (header.hasRemaining()) {
+                segment.read(header, position + header.position());
+            }
+            header.flip();
+            int length = header.getInt();
+            byte[] hash = new byte[HASH_BYTES];
+            header.get(hash);
+            if (length < 0 || position + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+
+            Locator locator = new Locator(segmentNumber, position + RECORD_HEADER_BYTES, length);
+            indexEntries.clear();
+            putIndexEntry(indexEntries, hash, locator);
+            indexEntries.flip();
+            writeFully(indexChannel, indexEntries, indexChannel.size());
+            index.put(HashUtils.bytesToHex(hash), locator);
+            position = locator.offset() + length;
+            recovered++;
+        }
+
+        if (position < size) {
+            log.warn("Envelope log: dropping {} byte(s) of a torn record in segment {}", size - position, segmentNumber);
+            segment.truncate(position);
+        }
+        if (recovered > 0) {
+            indexChannel.force(false);
+            log.info("Envelope log: re-indexed {} record(s) in segment {}", recovered, segmentNumber);
+        }
+    }
+
+    private static void putIndexEntry(ByteBuffer entries, byte[] hash, Locator locator) {
+        entries.put(hash).putInt(locator.segment()).putLong(locator.offset()).putInt(locator.length());
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        int written = 0;
+        while (data.hasRemaining()) {
+            written += channel.write(data, position + written);
+        }
+        return written;
+    }
+
+    /**
+     * Position of an envelope in the log; stored as {@code log:<segment>:<offset>:<length>}.
+     */
+    public record Locator(int segment, long offset, int length) {
+
+        private static final String PREFIX = "log:";
+
+        public static boolean isLocator(String value) {
+            return value.startsWith(PREFIX);
+        }
+
+        public static Locator parse(String value) {
+            String[] parts = value.substring(PREFIX.length()).split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid envelope locator: " + value);
+            }
+            return new Locator(Integer.parseInt(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]));
+        }
+
+        @Override
+        public String toString() {
+            return PREFIX + segment + ":" + offset + ":" + length;
+        }
+    }
+}
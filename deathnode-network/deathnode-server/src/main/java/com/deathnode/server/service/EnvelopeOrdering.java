@@ -0,0 +1,160 @@
+package com.deathnode.server.service;
+
+import com.deathnode.server.grpc.VerifiedEnvelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Block order of a round's envelopes: by timestamp, then node sequence number, then node ID.
+ * <p>
+ * Each node's buffer is already in sequence order and is almost always in timestamp order
+ * too, so the buffers are merged with a k-way heap merge on primitive timestamps
+ * (O(n log k)). If any buffer is not monotonic, the envelopes are fully sorted instead.
+ */
+public final class EnvelopeOrdering {
+
+    private static final Logger log = LoggerFactory.getLogger(EnvelopeOrdering.class);
+
+    private static final Comparator<VerifiedEnvelope> BLOCK_ORDER = Comparator
+            .comparing(VerifiedEnvelope::timestamp)
+            .thenComparingLong(VerifiedEnvelope::sequenceNumber)
+            .thenComparing(VerifiedEnvelope::signerNodeId);
+
+    private final List<List<VerifiedEnvelope>> runs = new ArrayList<>();
+    private final List<long[]> runTimestamps = new ArrayList<>();
+    private int[] positions;
+    private int[] heap;
+    private int heapSize;
+
+    private EnvelopeOrdering() {
+    }
+
+    /**
+     * Order the envelopes of all buffers of a round into a new list.
+     */
+    public static List<VerifiedEnvelope> order(Collection<List<VerifiedEnvelope>> buffers) {
+        return new EnvelopeOrdering().merge(buffers);
+    }
+
+    private List<VerifiedEnvelope> merge(Collection<List<VerifiedEnvelope>> buffers) {
+        int total = 0;
+        boolean monotonic = true;
+        for (List<VerifiedEnvelope> buffer : buffers) {
+            if (buffer.isEmpty()) {
+                continue;
+            }
+            long[] timestamps = monotonicTimestamps(buffer);
+            if (timestamps == null) {
+                monotonic = false;
+            }
+            runs.add(buffer);
+            runTimestamps.add(timestamps);
+            total += buffer.size();
+        }
+
+        List<VerifiedEnvelope> ordered = new ArrayList<>(total);
+        if (!monotonic) {
+            log.debug("Buffer out of timestamp order, falling back to full sort");
+            for (List<VerifiedEnvelope> run : runs) {
+                ordered.addAll(run);
+            }
+            ordered.sort(BLOCK_ORDER);
+            return ordered;
+        }
+        if (runs.size() == 1) {
+            ordered.addAll(runs.get(0));
+            return ordered;
+        }
+
+        positions = new int[runs.size()];
+        heap = new int[runs.size()];
+        for (int run = 0; run < runs.size(); run++) {
+            heap[heapSize] = run;
+            siftUp(heapSize++);
+        }
+
+        while (heapSize > 0) {
+            int run = heap[0];
+            ordered.add(runs.get(run).get(positions[run]++));
+            if (positions[run] == runs.get(run).size()) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(0);
+        }
+        return ordered;
+    }
+
+    /**
+     * Timestamps of a buffer as epoch nanoseconds, or null if the buffer is not already in
+     * block order (timestamps non-decreasing, sequence numbers increasing).
+     */
+    private static long[] monotonicTimestamps(List<VerifiedEnvelope> buffer) {
+        long[] timestamps = new long[buffer.size()];
+        for (int i = 0; i < buffer.size(); i++) {
+            VerifiedEnvelope envelope = buffer.get(i);
+            timestamps[i] = epochNanos(envelope.timestamp());
+            if (i > 0 && (timestamps[i] < timestamps[i - 1]
+                    || envelope.sequenceNumber() <= buffer.get(i - 1).sequenceNumber())) {
+                return null;
+            }
+        }
+        return timestamps;
+    }
+
+    private static long epochNanos(Instant instant) {
+        // exact until the year 2262
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+
+    private boolean less(int a, int b) {
+        long tsA = runTimestamps.get(a)[positions[a]];
+        long tsB = runTimestamps.get(b)[positions[b]];
+        if (tsA != tsB) {
+            return tsA < tsB;
+        }
+        VerifiedEnvelope envA = runs.get(a).get(positions[a]);
+        VerifiedEnvelope envB = runs.get(b).get(positions[b]);
+        if (envA.sequenceNumber() != envB.sequenceNumber()) {
+            return envA.sequenceNumber() < envB.sequenceNumber();
+        }
+        return envA.signerNodeId().compareTo(envB.signerNodeId()) < 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (!less(heap[i], heap[parent])) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize) {
+                return;
+            }
+            int smallest = (left + 1 < heapSize && less(heap[left + 1], heap[left])) ? left + 1 : left;
+            if (!less(heap[smallest], heap[i])) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int tmp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = tmp;
+    }
+}
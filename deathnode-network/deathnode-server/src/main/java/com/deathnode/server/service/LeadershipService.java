@@ -0,0 +1,176 @@
+package com.deathnode.server.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Active/standby leadership between server instances sharing one Postgres database.
+ * <p>
+ * The leader holds a session-level advisory lock ({@code pg_try_advisory_lock}) on a
+ * dedicated connection, so the lock is released by Postgres as soon as that process or
+ * its connection dies. Standbys retry the lock every {@code ha.check-interval-ms} and
+ * refresh their caches in between, so taking over only has to open the envelope log.
+ * Only the leader accepts client streams.
+ * <p>
+ * A leader that can no longer confirm its lock stops the process instead of serving on:
+ * another instance may already lead, and a restart brings this one back as a standby.
+ * Block commits are additionally fenced by the guarded ledger head update.
+ * <p>
+ * With {@code ha.enabled=false} the instance leads right away and no lock is taken.
+ */
+@Service
+public class LeadershipService {
+
+    private static final Logger log = LoggerFactory.getLogger(LeadershipService.class);
+
+    private final DataSource dataSource;
+    private final ScheduledExecutorService checker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "leadership");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Value("${ha.enabled:false}")
+    private boolean enabled;
+    @Value("${ha.lock-key:7301}")
+    private long lockKey;
+    @Value("${ha.check-interval-ms:1000}")
+    private long checkIntervalMs;
+    @Value("${ha.standby-refresh-ms:5000}")
+    private long standbyRefreshMs;
+
+    private volatile boolean leader = false;
+
+    // used by the checker thread only
+    private Connection lockConnection;
+    private Runnable onElected;
+    private Runnable refreshStandby;
+    private long lastRefresh = 0;
+
+    public LeadershipService(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Start competing for leadership.
+     *
+     * @param onElected      run once when this instance becomes the leader, before it accepts clients
+     * @param refreshStandby run periodically while this instance is a standby
+     */
+    public void start(Runnable onElected, Runnable refreshStandby) {
+        if (!enabled) {
+            onElected.run();
+            leader = true;
+            return;
+        }
+        this.onElected = onElected;
+        this.refreshStandby = refreshStandby;
+        log.info("Standby: waiting for the leadership lock {}", lockKey);
+        checker.scheduleWithFixedDelay(this::check, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    public boolean isLeader() {
+        return leader;
+    }
+
+    @PreDestroy
+    public void stop() {
+        checker.shutdownNow();
+        try {
+            checker.awaitTermination(checkIntervalMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        leader = false;
+        releaseLock();
+    }
+
+    private void check() {
+        try {
+            if (leader) {
+                confirmLock();
+            } else if (tryLock()) {
+                log.info("Acquired the leadership lock, taking over");
+                long start = System.currentTimeMillis();
+                onElected.run();
+                leader = true;
+                log.info("Leading (took over in {} ms)", System.currentTimeMillis() - start);
+            } else if (System.currentTimeMillis() - lastRefresh >= standbyRefreshMs) {
+                refreshStandby.run();
+                lastRefresh = System.currentTimeMillis();
+            }
+        } catch (Exception e) {
+            if (leader) {
+                log.error("Lost the leadership lock, stopping", e);
+                leader = false;
+                // exit from another thread: shutdown hooks stop this executor
+                new Thread(() -> System.exit(1), "leadership-exit").start();
+            } else {
+                // e.g. the takeover failed after the lock was taken: give another instance the chance
+                log.warn("Leadership check failed", e);
+                releaseLock();
+            }
+        }
+    }
+
+    private boolean tryLock() throws SQLException {
+        if (lockConnection == null || lockConnection.isClosed()) {
+            lockConnection = dataSource.getConnection();
+            lockConnection.setAutoCommit(true);
+        }
+        try (PreparedStatement statement = lockConnection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, lockKey);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Check that the lock is still held by this session (throws if the connection is gone).
+     */
+    private void confirmLock() throws SQLException {
+        try (PreparedStatement statement = lockConnection.prepareStatement(
+                "SELECT count(*) FROM pg_locks WHERE locktype = 'advisory' AND granted AND pid = pg_backend_pid() " +
+                "AND objsubid = 1 AND ((classid::bigint << 32) | objid::bigint) = ?")) {
+            statement.setLong(1, lockKey);
+            try (ResultSet rs = statement.executeQuery()) {
+                if (!rs.next() || rs.getLong(1) == 0) {
+                    throw new SQLException("advisory lock " + lockKey + " is not held");
+                }
+            }
+        }
+    }
+
+    /**
+     * Release the lock (if held) and return the connection. The connection goes back to the
+     * pool, so the session lock has to be released explicitly.
+     */
+    private void releaseLock() {
+        if (lockConnection == null) {
+            return;
+        }
+        try (PreparedStatement statement = lockConnection.prepareStatement("SELECT pg_advisory_unlock_all()")) {
+            statement.execute();
+        } catch (SQLException e) {
+            log.warn("Failed to release the leadership lock: {}", e.getMessage());
+        }
+        try {
+            lockConnection.close();
+        } catch (SQLException ignored) {
+        }
+        lockConnection = null;
+    }
+}
@@ -0,0 +1,148 @@
+package com.deathnode.server.service;
+
+import com.deathnode.common.util.HashUtils;
+import com.deathnode.server.entity.SignedBlockMerkleRoot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Head of the ledger: next global sequence number, head of the top-level chain and last
+ * committed block of each shard.
+ * <p>
+ * Every shard block, once committed, is appended to the top-level chain, whose entries
+ * give the global order of shard blocks: entry n has root
+ * {@code SHA-256(root(n-1) || shard id || shard block root)}. The global head is kept in
+ * memory and backed by the single-row {@code ledger_head} table, which is loaded once at
+ * startup and updated inside each block's commit transaction. This replaces the MAX(...)
+ * queries over reports and block roots on every finalize/commit. Shard heads are loaded
+ * from the block roots table. Blocks are committed one at a time (see
+ * {@link BlockPersistenceService}), so the heads only move forward from one thread.
+ */
+@Service
+public class LedgerHeadService {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerHeadService.class);
+
+    private static final ShardHead EMPTY_SHARD = new ShardHead(0L, null);
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile LedgerHead head = new LedgerHead(1L, 0L, null);
+    private volatile Map<Integer, ShardHead> shardHeads = Map.of();
+
+    public LedgerHeadService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Load the heads from the database. If the ledger_head row is missing (database created
+     * by an older schema), it is rebuilt from the reports and block roots tables once.
+     */
+    public void load() {
+        List<LedgerHead> rows = jdbcTemplate.query(
+                "SELECT next_global_sequence, last_block_number, last_block_root FROM ledger_head WHERE id = 1",
+                (rs, i) -> new LedgerHead(rs.getLong(1), rs.getLong(2), rs.getString(3)));
+
+        if (rows.isEmpty()) {
+            Long maxSeq = jdbcTemplate.queryForObject("SELECT MAX(global_sequence_number) FROM reports", Long.class);
+            List<LedgerHead> lastBlock = jdbcTemplate.query(
+                    "SELECT global_block_number, global_root FROM signed_block_merkle_roots ORDER BY global_block_number DESC LIMIT 1",
+                    (rs, i) -> new LedgerHead(0L, rs.getLong(1), rs.getString(2)));
+            long nextSeq = (maxSeq == null) ? 1L : maxSeq + 1L;
+            LedgerHead rebuilt = lastBlock.isEmpty()
+                    ? new LedgerHead(nextSeq, 0L, null)
+                    : new LedgerHead(nextSeq, lastBlock.get(0).lastBlockNumber(), lastBlock.get(0).lastBlockRoot());
+
+            jdbcTemplate.update("INSERT INTO ledger_head(id, next_global_sequence, last_block_number, last_block_root) VALUES (1, ?, ?, ?)",
+                    rebuilt.nextGlobalSequence(), rebuilt.lastBlockNumber(), rebuilt.lastBlockRoot());
+            head = rebuilt;
+        } else {
+            head = rows.get(0);
+        }
+
+        Map<Integer, ShardHead> shards = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT DISTINCT ON (shard_id) shard_id, block_number, block_root FROM signed_block_merkle_roots " +
+                "ORDER BY shard_id, block_number DESC",
+                rs -> {
+                    shards.put(rs.getInt(1), new ShardHead(rs.getLong(2), rs.getString(3)));
+                });
+        shardHeads = Map.copyOf(shards);
+
+        log.info("Ledger head loaded: global block {}, next global seq {}, {} shard(s) with blocks",
+                head.lastBlockNumber(), head.nextGlobalSequence(), shardHeads.size());
+    }
+
+    /**
+     * Current (committed) global head.
+     */
+    public LedgerHead head() {
+        return head;
+    }
+
+    /**
+     * Last committed block of a shard (block 0 and no root if it has none yet).
+     */
+    public ShardHead shardHead(int shardId) {
+        return shardHeads.getOrDefault(shardId, EMPTY_SHARD);
+    }
+
+    /**
+     * Append a shard block to the top-level chain inside the caller's transaction. The in-memory
+     * heads are not changed until {@link #publish} is called after the transaction commits.
+     *
+     * @return the new global head; its first sequence for the block is {@code head().nextGlobalSequence()}
+     *         and its last block number/root are the block's entry in the top-level chain
+     */
+    public LedgerHead advance(int envelopeCount, SignedBlockMerkleRoot root) {
+        LedgerHead current = head;
+        LedgerHead next = new LedgerHead(current.nextGlobalSequence() + envelopeCount, current.lastBlockNumber() + 1,
+                globalRoot(current.lastBlockRoot(), root.getShardId(), root.getBlockRoot()));
+
+        // guarded on the previous entry, so a head that moved under us fails the transaction
+        int updated = jdbcTemplate.update(
+                "UPDATE ledger_head SET next_global_sequence = ?, last_block_number = ?, last_block_root = ? " +
+                "WHERE id = 1 AND last_block_number = ?",
+                next.nextGlobalSequence(), next.lastBlockNumber(), next.lastBlockRoot(), current.lastBlockNumber());
+        if (updated != 1) {
+            throw new IllegalStateException("Ledger head moved: expected global block " + current.lastBlockNumber());
+        }
+        return next;
+    }
+
+    /**
+     * Make a committed head visible, together with the shard block it appended.
+     */
+    public void publish(LedgerHead committed, SignedBlockMerkleRoot block) {
+        Map<Integer, ShardHead> shards = new HashMap<>(shardHeads);
+        shards.put(block.getShardId(), new ShardHead(block.getBlockNumber(), block.getBlockRoot()));
+        shardHeads = Map.copyOf(shards);
+        head = committed;
+    }
+
+    /**
+     * Root of a top-level chain entry.
+     */
+    static String globalRoot(String prevGlobalRoot, int shardId, String shardBlockRoot) {
+        byte[] prev = (prevGlobalRoot != null) ? HashUtils.hexToBytes(prevGlobalRoot) : new byte[0];
+        byte[] block = HashUtils.hexToBytes(shardBlockRoot);
+        ByteBuffer data = ByteBuffer.allocate(prev.length + Integer.BYTES + block.length)
+                .put(prev).putInt(shardId).put(block);
+        return HashUtils.bytesToHex(HashUtils.sha256(data.array()));
+    }
+
+    /**
+     * Global head: last block number/root are those of the top-level chain.
+     */
+    public record LedgerHead(long nextGlobalSequence, long lastBlockNumber, String lastBlockRoot) {
+    }
+
+    public record ShardHead(long lastBlockNumber, String lastBlockRoot) {
+    }
+}
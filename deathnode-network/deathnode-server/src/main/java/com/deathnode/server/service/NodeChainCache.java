@@ -0,0 +1,113 @@
+package com.deathnode.server.service;
+
+import com.deathnode.server.entity.Node;
+import com.deathnode.server.repository.NodeRepository;
+import com.deathnode.server.service.SpeculativeChainState.ChainHead;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Authoritative in-memory copy of every node and its committed chain head.
+ * <p>
+ * Warmed from the database at startup and only changed when a block commits,
+ * so chain checks and node lookups on the upload path never hit the database.
+ * Speculative (not yet committed) heads live in {@link SpeculativeChainState}.
+ */
+@Service
+public class NodeChainCache {
+
+    private static final Logger log = LoggerFactory.getLogger(NodeChainCache.class);
+
+    private final NodeRepository nodeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+    private final Map<String, ChainHead> heads = new ConcurrentHashMap<>();
+
+    public NodeChainCache(NodeRepository nodeRepository, JdbcTemplate jdbcTemplate) {
+        this.nodeRepository = nodeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Load all nodes and chain heads from the database, replacing whatever was cached.
+     */
+    public void warm() {
+        nodes.clear();
+        heads.clear();
+
+        for (Node node : nodeRepository.findAll()) {
+            nodes.put(node.getNodeId(), node);
+        }
+        jdbcTemplate.query(
+                "SELECT node_id, last_sequence_number, last_envelope_hash FROM nodes_sync_state WHERE last_sequence_number IS NOT NULL",
+                rs -> {
+                    heads.put(rs.getString(1), new ChainHead(rs.getLong(2), rs.getString(3)));
+                });
+
+        log.info("Chain cache warmed: {} node(s), {} chain head(s)", nodes.size(), heads.size());
+    }
+
+    /**
+     * Check the cached heads against the reports actually stored: each node's head must be
+     * its report with the highest sequence number. Throws if they disagree.
+     */
+    public void verifyConsistency() {
+        Map<String, ChainHead> stored = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT r.signer_node_id, r.node_sequence_number, r.envelope_hash FROM reports r " +
+                "WHERE r.node_sequence_number = (SELECT MAX(x.node_sequence_number) FROM reports x WHERE x.signer_node_id = r.signer_node_id)",
+                rs -> {
+                    stored.put(rs.getString(1), new ChainHead(rs.getLong(2), rs.getString(3)));
+                });
+
+        List<String> mismatches = new ArrayList<>();
+        for (String nodeId : nodes.keySet()) {
+            if (!Objects.equals(heads.get(nodeId), stored.get(nodeId))) {
+                mismatches.add(nodeId + " (cached=" + heads.get(nodeId) + ", reports=" + stored.get(nodeId) + ")");
+            }
+        }
+
+        if (!mismatches.isEmpty()) {
+            throw new IllegalStateException("Chain heads do not match stored reports: " + String.join(", ", mismatches));
+        }
+        log.info("Chain cache consistent with stored reports");
+    }
+
+    /**
+     * Node entity, or null if unknown. Nodes are static, but one missing from the cache is
+     * still looked up once in the database.
+     */
+    public Node getNode(String nodeId) {
+        Node node = nodes.get(nodeId);
+        if (node == null) {
+            node = nodeRepository.findByNodeId(nodeId);
+            if (node != null) {
+                nodes.put(nodeId, node);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * Committed chain head of a node, or null if it has no committed envelopes.
+     */
+    public ChainHead headOf(String nodeId) {
+        return heads.get(nodeId);
+    }
+
+    /**
+     * Apply the heads of a block that was just committed to the database.
+     */
+    public void commit(Map<String, ChainHead> newHeads) {
+        heads.putAll(newHeads);
+    }
+}
@@ -0,0 +1,181 @@
+package com.deathnode.server.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Upload and ack latency of each node, used to set per-node round deadlines.
+ * <p>
+ * Upload latency is the time from a round opening (RequestBuffer broadcast) to the node's
+ * buffer arriving; ack latency is the time from a block's SyncResult broadcast to the
+ * node's ack. Both are kept in small log-scale histograms whose counts are halved
+ * periodically, so they follow recent behaviour. Late uploads and acks (after the node was
+ * dropped or the block committed) are recorded too, so a node that was cut off gets a
+ * longer deadline next time.
+ * <p>
+ * A node's deadline is its latency at the configured percentile plus a margin, within
+ * {@code [min-ms, max-ms]}; nodes with too few samples get the fixed default.
+ * Owned by a coordinator's event loop; the methods are synchronized so stats can be read
+ * from other threads.
+ */
+public class NodeLatencyTracker {
+
+    // starts of recent rounds/blocks, to measure uploads and acks that arrive after they ended
+    private static final int RECENT_STARTS = 8;
+
+    private final Settings settings;
+    private final Map<String, Histogram> uploads = new HashMap<>();
+    private final Map<String, Histogram> acks = new HashMap<>();
+    private final Map<String, Long> roundOpenedAt = recentMap();
+    private final Map<Long, Long> blockBroadcastAt = recentMap();
+
+    public NodeLatencyTracker(Settings settings) {
+        this.settings = settings;
+    }
+
+    public synchronized void roundOpened(String roundId, long now) {
+        roundOpenedAt.put(roundId, now);
+    }
+
+    public synchronized void uploadReceived(String roundId, String nodeId, long now) {
+        Long openedAt = roundOpenedAt.get(roundId);
+        if (openedAt != null) {
+            uploads.computeIfAbsent(nodeId, id -> new Histogram()).record(now - openedAt);
+        }
+    }
+
+    public synchronized void blockBroadcast(long blockNumber, long now) {
+        blockBroadcastAt.put(blockNumber, now);
+    }
+
+    public synchronized void ackReceived(long blockNumber, String nodeId, long now) {
+        Long broadcastAt = blockBroadcastAt.get(blockNumber);
+        if (broadcastAt != null) {
+            acks.computeIfAbsent(nodeId, id -> new Histogram()).record(now - broadcastAt);
+        }
+    }
+
+    /**
+     * How long to wait for a node's buffer.
+     *
+     * @param defaultMs deadline for nodes without enough samples (and when adaptive deadlines are off)
+     */
+    public synchronized long uploadDeadline(String nodeId, long defaultMs) {
+        return deadline(uploads.get(nodeId), defaultMs);
+    }
+
+    /**
+     * How long to wait for the acks of a round's nodes: the longest of their deadlines.
+     */
+    public synchronized long ackDeadline(Collection<String> nodeIds, long defaultMs) {
+        long deadline = 0;
+        for (String nodeId : nodeIds) {
+            deadline = Math.max(deadline, deadline(acks.get(nodeId), defaultMs));
+        }
+        return (deadline > 0) ? deadline : defaultMs;
+    }
+
+    /**
+     * A node's latencies (0 without samples) and the deadlines it currently gets.
+     */
+    public synchronized NodeLatency getStats(String nodeId, long defaultUploadMs, long defaultAckMs) {
+        Histogram upload = uploads.get(nodeId);
+        Histogram ack = acks.get(nodeId);
+        return new NodeLatency(nodeId,
+                percentile(upload, 50), percentile(upload, settings.percentile()),
+                percentile(ack, 50), percentile(ack, settings.percentile()),
+                deadline(upload, defaultUploadMs), deadline(ack, defaultAckMs));
+    }
+
+    private static long percentile(Histogram histogram, int percentile) {
+        return (histogram != null) ? histogram.percentile(percentile) : 0;
+    }
+
+    private long deadline(Histogram histogram, long defaultMs) {
+        if (!settings.adaptive() || histogram == null || histogram.count() < settings.minSamples()) {
+            return defaultMs;
+        }
+        long deadline = histogram.percentile(settings.percentile()) + settings.marginMs();
+        return Math.max(settings.minMs(), Math.min(settings.maxMs(), deadline));
+    }
+
+    private static <K> Map<K, Long> recentMap() {
+        return new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Long> eldest) {
+                return size() > RECENT_STARTS;
+            }
+        };
+    }
+
+    /**
+     * Log-scale latency histogram: bucket i holds values up to {@code 1.25^i} ms (about 3.5 minutes
+     * in the last bucket), so percentiles are rounded up by at most 25%. Once it has
+     * {@link #WINDOW} samples all counts are halved.
+     */
+    static final class Histogram {
+
+        private static final int BUCKETS = 56;
+        private static final double FACTOR = 1.25;
+        private static final int WINDOW = 256;
+        private static final long[] UPPER_BOUNDS = new long[BUCKETS];
+
+        static {
+            for (int i = 0; i < BUCKETS; i++) {
+                UPPER_BOUNDS[i] = (long) Math.ceil(Math.pow(FACTOR, i));
+            }
+        }
+
+        private final long[] counts = new long[BUCKETS];
+        private long count = 0;
+
+        void record(long latencyMs) {
+            int bucket = 0;
+            while (bucket < BUCKETS - 1 && UPPER_BOUNDS[bucket] < latencyMs) {
+                bucket++;
+            }
+            counts[bucket]++;
+            if (++count >= WINDOW) {
+                count = 0;
+                for (int i = 0; i < BUCKETS; i++) {
+                    counts[i] /= 2;
+                    count += counts[i];
+                }
+            }
+        }
+
+        long count() {
+            return count;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given percentile (0 if empty).
+         */
+        long percentile(int percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return UPPER_BOUNDS[i];
+                }
+            }
+            return UPPER_BOUNDS[BUCKETS - 1];
+        }
+    }
+
+    /**
+     * Deadline settings (sync.deadline.* in application.yaml).
+     */
+    public record Settings(boolean adaptive, int percentile, long marginMs, long minMs, long maxMs, int minSamples) {
+    }
+
+    public record NodeLatency(String nodeId, long uploadP50Ms, long uploadHighMs, long ackP50Ms, long ackHighMs,
+                              long uploadDeadlineMs, long ackDeadlineMs) {
+    }
+}
@@ -0,0 +1,112 @@
+package com.deathnode.server.service;
+
+import com.google.protobuf.ByteString;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The last committed blocks, kept in memory for nodes that missed them.
+ * <p>
+ * Entries hold the same envelope {@link ByteString}s that were broadcast in the block's
+ * SyncResult frames and the block root as signed at commit time, so serving a cached block
+ * reads neither the database nor the envelope log and does not sign again. The cache is
+ * bounded by a number of blocks and by envelope bytes; the oldest blocks are evicted first.
+ */
+@Service
+public class RecentBlockCache {
+
+    private final int maxBlocks;
+    private final long maxBytes;
+
+    // guarded by "this"
+    private final LinkedHashMap<BlockKey, CachedBlock> blocks = new LinkedHashMap<>();
+    private long cachedBytes = 0;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RecentBlockCache(@Value("${sync.block-cache.max-blocks:64}") int maxBlocks,
+                            @Value("${sync.block-cache.max-bytes:67108864}") long maxBytes) {
+        this.maxBlocks = maxBlocks;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Add a block that was just committed. Blocks larger than the whole cache are not kept.
+     */
+    public synchronized void put(CachedBlock block) {
+        if (maxBlocks <= 0 || block.bytes() > maxBytes) {
+            return;
+        }
+        CachedBlock replaced = blocks.put(new BlockKey(block.shardId(), block.blockNumber()), block);
+        if (replaced != null) {
+            cachedBytes -= replaced.bytes();
+        }
+        cachedBytes += block.bytes();
+
+        Iterator<Map.Entry<BlockKey, CachedBlock>> oldest = blocks.entrySet().iterator();
+        while (blocks.size() > maxBlocks || cachedBytes > maxBytes) {
+            cachedBytes -= oldest.next().getValue().bytes();
+            oldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Cached block with the given number in the shard, or null if it is not (or no longer) cached.
+     */
+    public CachedBlock get(int shardId, long blockNumber) {
+        CachedBlock block;
+        synchronized (this) {
+            block = blocks.get(new BlockKey(shardId, blockNumber));
+        }
+        if (block == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return block;
+    }
+
+    /**
+     * Count envelope bytes sent to a node from a cached block.
+     */
+    public void recordServed(long bytes) {
+        bytesServed.addAndGet(bytes);
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(blocks.size(), cachedBytes, hits.get(), misses.get(), bytesServed.get(), evictions.get());
+    }
+
+    /**
+     * A committed block as broadcast: ordered envelopes, its root, the signature sent with it
+     * and the previous block's root (null for the first block).
+     */
+    public record CachedBlock(int shardId, long blockNumber, List<ByteString> envelopes, byte[] blockRoot,
+                              byte[] signedBlockRoot, byte[] prevBlockRoot, long bytes) {
+
+        public static CachedBlock of(int shardId, long blockNumber, List<ByteString> envelopes, byte[] blockRoot,
+                                     byte[] signedBlockRoot, byte[] prevBlockRoot) {
+            long bytes = 0;
+            for (ByteString envelope : envelopes) {
+                bytes += envelope.size();
+            }
+            return new CachedBlock(shardId, blockNumber, List.copyOf(envelopes), blockRoot, signedBlockRoot, prevBlockRoot, bytes);
+        }
+    }
+
+    private record BlockKey(int shardId, long blockNumber) {
+    }
+
+    public record CacheStats(int blocks, long bytes, long hits, long misses, long bytesServed, long evictions) {
+    }
+}
@@ -0,0 +1,212 @@
+package com.deathnode.server.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when sync rounds start, separately for each shard.
+ * <p>
+ * Nodes report how many envelopes they have waiting ({@code PendingStatus}); a round is
+ * opened when at least {@code min-pending-nodes} nodes of the shard have work, or when the
+ * oldest pending work is older than {@code max-latency-ms}. Explicit requests
+ * ({@code Hello{start_sync=true}}) open one as soon as allowed. Rounds of a shard are at
+ * least {@code min-interval-ms} apart, so a burst of triggers ends up in a single round.
+ * A round collects the buffers of every connected node of its shard, so all pending work
+ * there is considered covered once it opens; nodes report again after each block.
+ * <p>
+ * With {@code sync.scheduler.enabled=false} every request opens a round right away.
+ */
+@Service
+public class RoundScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(RoundScheduler.class);
+
+    private static final String SCHEDULER_INITIATOR = "scheduler";
+
+    private final ShardRouter shardRouter;
+    private final List<ShardWindow> windows;
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "round-scheduler");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Value("${sync.scheduler.enabled:true}")
+    private boolean enabled;
+    @Value("${sync.scheduler.min-interval-ms:1000}")
+    private long minIntervalMs;
+    @Value("${sync.scheduler.max-latency-ms:5000}")
+    private long maxLatencyMs;
+    @Value("${sync.scheduler.min-pending-nodes:2}")
+    private int minPendingNodes;
+    @Value("${sync.scheduler.tick-ms:200}")
+    private long tickMs;
+
+    public RoundScheduler(ShardRouter shardRouter) {
+        this.shardRouter = shardRouter;
+        this.windows = new ArrayList<>(shardRouter.shardCount());
+        for (int shardId = 0; shardId < shardRouter.shardCount(); shardId++) {
+            windows.add(new ShardWindow(shardRouter.coordinator(shardId)));
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            ticker.scheduleAtFixedRate(() -> windows.forEach(ShardWindow::evaluate), tickMs, tickMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * A node asked for a round.
+     *
+     * @param traceParent traceparent of the node's request ("" if not traced); the round's trace continues it
+     */
+    public void requestRound(String nodeId, String traceParent) {
+        if (!enabled) {
+            shardRouter.coordinatorFor(nodeId).startRoundIfAbsent(nodeId, traceParent);
+            return;
+        }
+        windowOf(nodeId).request(nodeId, traceParent);
+    }
+
+    /**
+     * A node reported how many envelopes it has waiting.
+     */
+    public void onPendingStatus(String nodeId, int pendingCount) {
+        if (!enabled) {
+            return;
+        }
+        windowOf(nodeId).pending(nodeId, pendingCount);
+    }
+
+    /**
+     * A node left: its pending work can not be collected anymore.
+     */
+    public void onDisconnect(String nodeId) {
+        windowOf(nodeId).pendingSince.remove(nodeId);
+    }
+
+    public SchedulerStats getStats() {
+        long opened = 0;
+        long merged = 0;
+        int pending = 0;
+        for (ShardWindow window : windows) {
+            synchronized (window) {
+                opened += window.roundsOpened;
+                merged += window.triggersMerged;
+                pending += window.pendingSince.size();
+            }
+        }
+        return new SchedulerStats(opened, merged, pending);
+    }
+
+    private ShardWindow windowOf(String nodeId) {
+        return windows.get(shardRouter.shardOf(nodeId));
+    }
+
+    /**
+     * Scheduling state of one shard.
+     */
+    private final class ShardWindow {
+
+        private final SyncCoordinator coordinator;
+        // node id -> when the node first reported pending work not yet covered by a round
+        private final Map<String, Long> pendingSince = new ConcurrentHashMap<>();
+
+        // guarded by "this"
+        private String requestedBy = null;
+        private String requestTraceParent = "";
+        private long lastRoundAt = 0;
+        private long roundsOpened = 0;
+        private long triggersMerged = 0;
+
+        ShardWindow(SyncCoordinator coordinator) {
+            this.coordinator = coordinator;
+        }
+
+        void request(String nodeId, String traceParent) {
+            synchronized (this) {
+                if (requestedBy != null) {
+                    triggersMerged++;
+                } else {
+                    requestedBy = nodeId;
+                    requestTraceParent = traceParent;
+                }
+            }
+            evaluate();
+        }
+
+        void pending(String nodeId, int pendingCount) {
+            if (pendingCount > 0) {
+                pendingSince.putIfAbsent(nodeId, System.currentTimeMillis());
+            } else {
+                pendingSince.remove(nodeId);
+            }
+            evaluate();
+        }
+
+        /**
+         * Open a round if one is due. Called on every trigger and on each tick.
+         */
+        synchronized void evaluate() {
+            if (requestedBy == null && pendingSince.isEmpty()) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastRoundAt < minIntervalMs) {
+                return; // the next tick after the interval picks it up
+            }
+
+            long oldest = now;
+            for (long since : pendingSince.values()) {
+                oldest = Math.min(oldest, since);
+            }
+
+            String reason;
+            if (requestedBy != null) {
+                reason = "requested by " + requestedBy;
+            } else if (pendingSince.size() >= minPendingNodes) {
+                reason = pendingSince.size() + " node(s) with pending work";
+            } else if (now - oldest >= maxLatencyMs) {
+                reason = "pending work waiting for " + (now - oldest) + " ms";
+            } else {
+                return;
+            }
+
+            String initiator = (requestedBy != null) ? requestedBy : SCHEDULER_INITIATOR;
+            String traceParent = (requestedBy != null) ? requestTraceParent : "";
+            requestedBy = null;
+            requestTraceParent = "";
+            pendingSince.clear();
+            lastRoundAt = now;
+            roundsOpened++;
+
+            log.atDebug().setMessage("Scheduler opening round")
+                    .addKeyValue("shard", coordinator.getShardId())
+                    .addKeyValue("reason", reason)
+                    .log();
+            coordinator.startRoundIfAbsent(initiator, traceParent);
+        }
+    }
+
+    public record SchedulerStats(long roundsOpened, long triggersMerged, int nodesPending) {
+    }
+}
@@ -0,0 +1,197 @@
+package com.deathnode.server.service;
+
+import com.deathnode.common.tracing.Tracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Spans of a shard's sync rounds.
+ * <p>
+ * Each round gets a {@code sync.round} span (a child of the client's request when the
+ * round was asked for with {@code Hello{start_sync}}) with one child per phase:
+ * {@code round.collect}, {@code round.verify} per buffer (a child of the client's upload
+ * span), {@code round.finalize} (with {@code block.sign}), {@code block.ack-wait} and
+ * {@code block.persist}. The traceparent of the round span goes out in RequestBuffer and
+ * the commit, that of the ack-wait span in SyncResult, so client spans join the trace.
+ * Not thread-safe: owned by the coordinator's event loop (the finalize span is only made
+ * current on the worker running the finalization).
+ */
+public class RoundTracer {
+
+    private final Tracer tracer;
+    private final int shardId;
+    private final Map<String, RoundSpans> rounds = new HashMap<>();
+
+    public RoundTracer(Tracer tracer, int shardId) {
+        this.tracer = tracer;
+        this.shardId = shardId;
+    }
+
+    /**
+     * A round was opened. Returns the traceparent to send in its RequestBuffer.
+     */
+    public String roundOpened(String roundId, String initiator, String requestTraceParent, int nodes) {
+        Span round = tracer.spanBuilder("sync.round")
+                .setParent(Tracing.parent(requestTraceParent))
+                .setAttribute("round.id", roundId)
+                .setAttribute("round.initiator", initiator)
+                .setAttribute("round.nodes", nodes)
+                .setAttribute("shard", shardId)
+                .startSpan();
+        RoundSpans spans = new RoundSpans(round);
+        spans.collect = child(spans, "round.collect").startSpan();
+        rounds.put(roundId, spans);
+        return Tracing.traceParent(Context.root().with(round));
+    }
+
+    /**
+     * A buffer arrived for the round; the returned span covers its verification.
+     */
+    public Span verifying(String roundId, String nodeId, String uploadTraceParent) {
+        RoundSpans spans = rounds.get(roundId);
+        Context parent = (uploadTraceParent != null && !uploadTraceParent.isEmpty())
+                ? Tracing.parent(uploadTraceParent)
+                : (spans != null) ? Context.root().with(spans.round) : Context.root();
+        return tracer.spanBuilder("round.verify")
+                .setParent(parent)
+                .setAttribute("round.id", roundId)
+                .setAttribute("node.id", nodeId)
+                .startSpan();
+    }
+
+    public void nodesTimedOut(String roundId, Set<String> nodeIds) {
+        RoundSpans spans = rounds.get(roundId);
+        if (spans != null && spans.collect != null) {
+            spans.collect.addEvent("nodes timed out: " + nodeIds);
+        }
+    }
+
+    /**
+     * Every expected buffer is in.
+     */
+    public void collected(String roundId) {
+        RoundSpans spans = rounds.get(roundId);
+        if (spans != null) {
+            spans.collect = end(spans.collect);
+        }
+    }
+
+    /**
+     * Start the finalize span; make it current while finalizing so the signing span nests under it.
+     */
+    public Span finalizing(String roundId) {
+        RoundSpans spans = rounds.get(roundId);
+        if (spans == null) {
+            return Span.getInvalid();
+        }
+        spans.finalize = child(spans, "round.finalize").startSpan();
+        return spans.finalize;
+    }
+
+    /**
+     * Span for signing a block root, under the current (finalize) span.
+     */
+    public Span signing() {
+        return tracer.spanBuilder("block.sign").startSpan();
+    }
+
+    public void finalized(String roundId) {
+        RoundSpans spans = rounds.get(roundId);
+        if (spans != null) {
+            spans.finalize = end(spans.finalize);
+        }
+    }
+
+    /**
+     * The round's block was broadcast. Returns the traceparent to send in its SyncResult.
+     */
+    public String broadcast(String roundId, long blockNumber) {
+        RoundSpans spans = rounds.get(roundId);
+        if (spans == null) {
+            return "";
+        }
+        spans.round.setAttribute("block.number", blockNumber);
+        spans.ackWait = child(spans, "block.ack-wait").setAttribute("block.number", blockNumber).startSpan();
+        return Tracing.traceParent(Context.root().with(spans.ackWait));
+    }
+
+    public void ack(String roundId, String nodeId, boolean accepted) {
+        RoundSpans spans = rounds.get(roundId);
+        if (spans != null && spans.ackWait != null) {
+            spans.ackWait.addEvent((accepted ? "ack from " : "nack from ") + nodeId);
+        }
+    }
+
+    /**
+     * Commit decided: the ack wait ends and persistence starts.
+     */
+    public void committing(String roundId, int acks, int nodes) {
+        RoundSpans spans = rounds.get(roundId);
+        if (spans == null) {
+            return;
+        }
+        if (spans.ackWait != null) {
+            spans.ackWait.setAttribute("acks", acks);
+            spans.ackWait.setAttribute("nodes", nodes);
+        }
+        spans.ackWait = end(spans.ackWait);
+        spans.persist = child(spans, "block.persist").startSpan();
+    }
+
+    /**
+     * Traceparent of the round span, sent with the commit ("" if the round is not traced).
+     */
+    public String roundTraceParent(String roundId) {
+        RoundSpans spans = rounds.get(roundId);
+        return (spans != null) ? Tracing.traceParent(Context.root().with(spans.round)) : "";
+    }
+
+    /**
+     * The round is over (committed, empty, aborted, restarted or voided): end all of its spans.
+     */
+    public void ended(String roundId, String outcome, boolean ok) {
+        RoundSpans spans = rounds.remove(roundId);
+        if (spans == null) {
+            return;
+        }
+        end(spans.collect);
+        end(spans.finalize);
+        end(spans.ackWait);
+        end(spans.persist);
+        spans.round.setAttribute("round.outcome", outcome);
+        if (!ok) {
+            spans.round.setStatus(StatusCode.ERROR, outcome);
+        }
+        spans.round.end();
+    }
+
+    private SpanBuilder child(RoundSpans spans, String name) {
+        return tracer.spanBuilder(name).setParent(Context.root().with(spans.round));
+    }
+
+    private static Span end(Span span) {
+        if (span != null) {
+            span.end();
+        }
+        return null;
+    }
+
+    private static final class RoundSpans {
+        private final Span round;
+        private Span collect;
+        private Span finalize;
+        private Span ackWait;
+        private Span persist;
+
+        RoundSpans(Span round) {
+            this.round = round;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.deathnode.server.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.trace.Tracer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partitions nodes into sync shards, each run by its own {@link SyncCoordinator}.
+ * <p>
+ * A round only waits for the nodes of its shard, so adding nodes adds shards instead of
+ * slowing every round. Nodes are placed by {@code sync.shards.assignments}
+ * ({@code node=shard,...}); nodes not listed there are spread by a hash of their id.
+ * A node keeps its shard for the life of the server: its chain and the blocks it
+ * verifies belong to that shard.
+ */
+@Service
+public class ShardRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRouter.class);
+
+    private final List<SyncCoordinator> coordinators;
+    private final Map<String, Integer> assignments;
+
+    public ShardRouter(NodeChainCache nodeChainCache,
+                       BlockPersistenceService blockPersistenceService,
+                       LedgerHeadService ledgerHeadService,
+                       BlockSigningService blockSigningService,
+                       UploadVerificationStage verificationStage,
+                       RecentBlockCache recentBlockCache,
+                       MeterRegistry meterRegistry,
+                       Tracer tracer,
+                       @Value("${sync.shards.count:1}") int shardCount,
+                       @Value("${sync.shards.assignments:}") String assignments,
+                       @Value("${sync.timeout-ms:5000}") long syncTimeoutMs,
+                       @Value("${sync.violation-sr3-enabled:false}") boolean violationSr3Enabled,
+                       @Value("${sync.violation-sr4-enabled:false}") boolean violationSr4Enabled,
+                       @Value("${sync.commit.policy:ALL}") SyncCoordinator.CommitPolicy commitPolicy,
+                       @Value("${sync.commit.min-acks:0}") int minAcks,
+                       @Value("${sync.commit.ack-deadline-ms:2000}") long ackDeadlineMs,
+                       @Value("${sync.deadline.adaptive:true}") boolean adaptiveDeadlines,
+                       @Value("${sync.deadline.percentile:99}") int deadlinePercentile,
+                       @Value("${sync.deadline.margin-ms:500}") long deadlineMarginMs,
+                       @Value("${sync.deadline.min-ms:1000}") long deadlineMinMs,
+                       @Value("${sync.deadline.max-ms:30000}") long deadlineMaxMs,
+                       @Value("${sync.deadline.min-samples:5}") int deadlineMinSamples) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("sync.shards.count must be at least 1");
+        }
+        this.assignments = parseAssignments(assignments, shardCount);
+
+        // the worker pools of all shards together get about one thread per CPU
+        int workerThreads = Math.max(2, Runtime.getRuntime().availableProcessors() / shardCount);
+        SyncCoordinator.Settings settings = new SyncCoordinator.Settings(
+                syncTimeoutMs, workerThreads, violationSr3Enabled, violationSr4Enabled, commitPolicy, minAcks, ackDeadlineMs,
+                new NodeLatencyTracker.Settings(adaptiveDeadlines, deadlinePercentile, deadlineMarginMs,
+                        deadlineMinMs, deadlineMaxMs, deadlineMinSamples));
+
+        List<SyncCoordinator> shards = new ArrayList<>(shardCount);
+        for (int shardId = 0; shardId < shardCount; shardId++) {
+            shards.add(new SyncCoordinator(shardId, settings, nodeChainCache, blockPersistenceService,
+                    ledgerHeadService, blockSigningService, verificationStage, recentBlockCache,
+                    new SyncMetrics(meterRegistry, shardId), new RoundTracer(tracer, shardId)));
+        }
+        this.coordinators = Collections.unmodifiableList(shards);
+    }
+
+    @PostConstruct
+    public void start() {
+        coordinators.forEach(SyncCoordinator::start);
+        log.info("Sync shards: {}{}", coordinators.size(), assignments.isEmpty() ? "" : " (assigned: " + assignments + ")");
+    }
+
+    @PreDestroy
+    public void stop() {
+        coordinators.forEach(SyncCoordinator::stop);
+    }
+
+    public int shardOf(String nodeId) {
+        Integer assigned = assignments.get(nodeId);
+        return (assigned != null) ? assigned : Math.floorMod(nodeId.hashCode(), coordinators.size());
+    }
+
+    /**
+     * Coordinator of the shard the node belongs to.
+     */
+    public SyncCoordinator coordinatorFor(String nodeId) {
+        return coordinators.get(shardOf(nodeId));
+    }
+
+    public SyncCoordinator coordinator(int shardId) {
+        return coordinators.get(shardId);
+    }
+
+    public int shardCount() {
+        return coordinators.size();
+    }
+
+    private static Map<String, Integer> parseAssignments(String value, int shardCount) {
+        Map<String, Integer> parsed = new HashMap<>();
+        if (value == null || value.isBlank()) {
+            return parsed;
+        }
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid shard assignment: " + entry);
+            }
+            int shard = Integer.parseInt(parts[1].trim());
+            if (shard < 0 || shard >= shardCount) {
+                throw new IllegalArgumentException("Shard " + shard + " of " + parts[0].trim() + " is out of range (count " + shardCount + ")");
+            }
+            parsed.put(parts[0].trim(), shard);
+        }
+        return parsed;
+    }
+}
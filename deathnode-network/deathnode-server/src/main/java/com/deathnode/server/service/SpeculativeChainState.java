@@ -0,0 +1,75 @@
+package com.deathnode.server.service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-node chain heads of rounds that are in flight but not yet committed.
+ * <p>
+ * Each in-flight round gets an overlay (node -> head after that round's buffer).
+ * Looking up a node walks the overlays from newest to oldest; a miss means the
+ * committed state in the database is the current head.
+ * Not thread-safe: owned by the coordinator's event loop.
+ */
+public class SpeculativeChainState {
+
+    private final LinkedHashMap<String, Map<String, ChainHead>> overlays = new LinkedHashMap<>();
+
+    /**
+     * Speculative head for a node, or null if no in-flight round touched it.
+     */
+    public ChainHead headOf(String nodeId) {
+        List<Map<String, ChainHead>> newestFirst = new ArrayList<>(overlays.values());
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            ChainHead head = newestFirst.get(i).get(nodeId);
+            if (head != null) {
+                return head;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Register a newly opened round, so rounds are kept in opening order.
+     */
+    public void open(String roundId) {
+        overlays.putIfAbsent(roundId, new HashMap<>());
+    }
+
+    /**
+     * Record the head a node will have once the given round commits.
+     */
+    public void record(String roundId, String nodeId, ChainHead head) {
+        overlays.computeIfAbsent(roundId, id -> new HashMap<>()).put(nodeId, head);
+    }
+
+    /**
+     * The round is now in the database: its overlay is no longer needed.
+     */
+    public void commit(String roundId) {
+        overlays.remove(roundId);
+    }
+
+    /**
+     * Drop the overlay of the given round and of every round opened after it,
+     * since those were verified on top of it.
+     */
+    public void rollbackFrom(String roundId) {
+        boolean found = false;
+        var it = overlays.keySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().equals(roundId)) {
+                found = true;
+            }
+            if (found) {
+                it.remove();
+            }
+        }
+    }
+
+    public record ChainHead(long lastSequenceNumber, String lastEnvelopeHash) {
+    }
+}
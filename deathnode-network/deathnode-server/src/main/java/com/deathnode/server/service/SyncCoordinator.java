@@ -1,237 +1,726 @@
 package com.deathnode.server.service;
 
-import com.deathnode.tool.SecureDocumentProtocol;
-import com.deathnode.tool.util.KeyLoader;
 import com.deathnode.common.grpc.*;
+import com.deathnode.common.grpc.Error;
 import com.deathnode.common.model.Envelope;
-import com.deathnode.common.model.Metadata;
 import com.deathnode.common.util.HashUtils;
 import com.deathnode.common.util.MerkleUtils;
-import com.deathnode.server.entity.Node;
-import com.deathnode.server.entity.NodeSyncState;
-import com.deathnode.server.entity.ReportEntity;
 import com.deathnode.server.entity.SignedBlockMerkleRoot;
+import com.deathnode.server.grpc.ClientConnection;
+import com.deathnode.server.grpc.ServerFrame;
+import com.deathnode.server.grpc.SyncResultFrames;
 import com.deathnode.server.grpc.SyncRound;
-import com.deathnode.server.repository.NodeRepository;
-import com.deathnode.server.repository.NodeSyncStateRepository;
-import com.deathnode.server.repository.ReportRepository;
-import com.deathnode.server.repository.SignedBlockMerkleRootRepository;
+import com.deathnode.server.grpc.VerifiedEnvelope;
+import com.deathnode.server.service.SpeculativeChainState.ChainHead;
 import com.google.gson.*;
-import io.grpc.stub.StreamObserver;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import com.google.protobuf.ByteString;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Scope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.nio.charset.StandardCharsets;
-import java.nio.file.*;
-import java.security.PrivateKey;
-import java.security.PublicKey;
-import java.time.Instant;
-import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 /**
- * Coordinates synchronization rounds between clients.
+ * Coordinates synchronization rounds between the clients of one shard.
+ * <p>
+ * All round state is owned by a single event loop thread: gRPC threads only post
+ * commands (hello, upload, ack, disconnect) and the timeout scheduler only posts
+ * timeouts. Uploads are verified by the {@link UploadVerificationStage}; finalization
+ * and persistence run on a worker pool. Their outcomes are posted back to the loop
+ * as events.
+ * <p>
+ * Each shard has its own coordinator (created by the {@link ShardRouter}), rounds,
+ * deadlines and chain of blocks; its blocks are placed in the global order when they
+ * are persisted.
+ * <p>
+ * A broadcast block is committed according to the {@link CommitPolicy}: once every node of
+ * the round acked it, once a quorum did, or once a quorum did and the ack deadline passed.
+ * Acks are tracked per node, so duplicates are not counted twice. Nodes that ack after
+ * the commit (or never) receive the block through catch-up. A nack received before the
+ * block is committed still voids it.
+ * <p>
+ * Each node of a round gets its own upload deadline from its observed latency (see
+ * {@link NodeLatencyTracker}), sent to it in RequestBuffer; the QUORUM_DEADLINE ack
+ * deadline is derived the same way from ack latency.
+ * <p>
+ * Every round is traced end to end by the {@link RoundTracer}.
  */
-@Service
 public class SyncCoordinator {
 
-    private final NodeRepository nodeRepository;
-    private final ReportRepository reportRepository;
-    private final NodeSyncStateRepository nodeSyncStateRepository;
-    private final SignedBlockMerkleRootRepository signedBlockMerkleRootRepository;
-    private final FileStorageService fileStorageService;
+    private static final Logger log = LoggerFactory.getLogger(SyncCoordinator.class);
+
+    /** Error code for buffers of a round that was restarted; the node is asked again, so it is not reported. */
+    public static final String STALE_ROUND = "STALE_ROUND";
+    /**
+     * Error code for buffers left out of their round (it closed before the buffer arrived or
+     * was verified, or the node timed out); the node resends the envelopes in a later round.
+     */
+    public static final String NOT_INCLUDED = "NOT_INCLUDED";
+    /** Error code broadcast when a round could not be finalized; its nodes resend their envelopes. */
+    public static final String ROUND_FAILED = "ROUND_FAILED";
+
+    private static final int RESTARTED_ROUNDS_KEPT = 64;
+
+    public enum CommitPolicy {
+        /** Commit once every node of the round acked the block. */
+        ALL,
+        /** Commit as soon as a quorum of the round's nodes acked. */
+        QUORUM,
+        /** Commit once everyone acked, or once a quorum acked and the ack deadline passed. */
+        QUORUM_DEADLINE
+    }
+
+    private final int shardId;
+    private final Settings settings;
+    private final NodeChainCache nodeChainCache;
+    private final LedgerHeadService ledgerHeadService;
+    private final BlockPersistenceService blockPersistenceService;
+    private final BlockSigningService blockSigningService;
+    private final UploadVerificationStage verificationStage;
+    private final RecentBlockCache recentBlockCache;
+    private final NodeLatencyTracker latencyTracker;
+    private final SyncMetrics metrics;
+    private final RoundTracer tracer;
     private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+    private final CoordinatorEventLoop<Event> eventLoop;
+    private final ExecutorService workerPool;
+    private final ScheduledExecutorService timeoutExecutor;
+
+    private final AtomicLong blocksCommitted = new AtomicLong();
+    private final AtomicLong committedWithoutAllAcks = new AtomicLong();
+    private final AtomicLong duplicateAcks = new AtomicLong();
+    private final AtomicLong lateAcks = new AtomicLong();
+
+    // ---- state below is confined to the event loop thread ----
     private final Map<String, ClientConnection> allConnections = new HashMap<>();
-    private final Object roundLock = new Object();
-    private final ScheduledExecutorService timeoutExecutor = Executors.newScheduledThreadPool(1);
-    // configuration injected from application.yaml
-    @Value("${keystore_password}")
-    private String keystorePassword;
-    @Value("${ed_private_key_alias}")
-    private String edPrivateKeyAlias;
-    @Value("${rsa_private_key_alias}")
-    private String rsaPrivateKeyAlias;
-    @Value("${keystore_path}")
-    private String keystorePath;
-    @Value("${sync.timeout-ms:5000}")
-    private long syncTimeoutMs;
-    @Value("${sync.violation-sr3-enabled:false}")
-    private boolean violationSr3Enabled;
-    @Value("${sync.violation-sr4-enabled:false}")
-    private boolean violationSr4Enabled;
-    private SyncRound activeRound = null;
-    private PendingRound pendingRound = null;
-
-    public SyncCoordinator(NodeRepository nodeRepository,
-                           ReportRepository reportRepository,
-                           FileStorageService fileStorageService,
-                           NodeSyncStateRepository nodeSyncStateRepository,
-                           SignedBlockMerkleRootRepository signedBlockMerkleRootRepository) {
-        this.nodeRepository = nodeRepository;
-        this.reportRepository = reportRepository;
-        this.fileStorageService = fileStorageService;
-        this.nodeSyncStateRepository = nodeSyncStateRepository;
-        this.signedBlockMerkleRootRepository = signedBlockMerkleRootRepository;
+    private final SpeculativeChainState speculativeChain = new SpeculativeChainState();
+    private final Set<String> restartedRounds = new LinkedHashSet<>(); // recent rounds re-opened by rollbackFrom
+    private SyncRound activeRound = null;    // collecting buffers
+    private SyncRound readyRound = null;     // all buffers in, waiting for the previous block to commit
+    private PendingRound pendingRound = null; // broadcast, waiting for acks / being persisted
+    private boolean finalizing = false;
+    private long roundStartedNanos = 0;     // of activeRound
+    private long blockBroadcastNanos = 0;   // of pendingRound
+    private String deferredInitiator = null;
+    private String deferredTraceParent = "";
+
+    public SyncCoordinator(int shardId,
+                           Settings settings,
+                           NodeChainCache nodeChainCache,
+                           BlockPersistenceService blockPersistenceService,
+                           LedgerHeadService ledgerHeadService,
+                           BlockSigningService blockSigningService,
+                           UploadVerificationStage verificationStage,
+                           RecentBlockCache recentBlockCache,
+                           SyncMetrics metrics,
+                           RoundTracer tracer) {
+        this.nodeChainCache = nodeChainCache;
+        this.blockPersistenceService = blockPersistenceService;
+        this.ledgerHeadService = ledgerHeadService;
+        this.blockSigningService = blockSigningService;
+        this.verificationStage = verificationStage;
+        this.recentBlockCache = recentBlockCache;
+        this.shardId = shardId;
+        this.settings = settings;
+        this.latencyTracker = new NodeLatencyTracker(settings.deadlines());
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.eventLoop = new CoordinatorEventLoop<>("sync-coordinator-" + shardId, this::handle, this::handleFailed);
+        this.workerPool = Executors.newFixedThreadPool(settings.workerThreads(), daemonThreads("sync-worker-" + shardId));
+        this.timeoutExecutor = Executors.newScheduledThreadPool(1, daemonThreads("sync-timeout-" + shardId));
     }
 
+    public int getShardId() {
+        return shardId;
+    }
+
+    public void start() {
+        eventLoop.start();
+    }
+
+    public void stop() {
+        eventLoop.stop();
+        timeoutExecutor.shutdownNow();
+        workerPool.shutdown();
+    }
+
+    // ========== Commands (any thread) ==========
+
     /**
-     * Start a sync round if none exists, or return existing round ID.
+     * Start a sync round if none is collecting buffers. If one is, the request joins it.
+     * Collection of a new round may overlap with the previous block's ack/persist phase.
+     *
+     * @param traceParent traceparent of the initiator's request ("" if not traced)
      */
-    public String startRoundIfAbsent(String initiatorNodeId) {
-        synchronized (roundLock) {
-            if (activeRound != null) {
-                // System.out.println("Reusing existing round: " + activeRound.getRoundId());
-                return activeRound.getRoundId();
-            }
+    public void startRoundIfAbsent(String initiatorNodeId, String traceParent) {
+        eventLoop.post(new StartRound(initiatorNodeId, traceParent));
+    }
+
+    /**
+     * Register a client connection.
+     */
+    public void registerClient(String nodeId, ClientConnection connection) {
+        eventLoop.post(new Register(nodeId, connection));
+    }
 
-            // Create new round with all known nodes as participants -> only the ones
-            // currently connected
-            Set<String> expectedNodes = allConnections.keySet().stream().collect(Collectors.toSet());
+    /**
+     * Unregister a client connection (only if it is still the current one for the node).
+     */
+    public void unregisterClient(String nodeId, ClientConnection connection) {
+        eventLoop.post(new Disconnect(nodeId, connection));
+    }
 
-            String roundId = UUID.randomUUID().toString();
-            activeRound = new SyncRound(roundId, expectedNodes, initiatorNodeId);
+    /**
+     * Submit a node's buffer to the active round.
+     * Returns a future that completes with the verification outcome of the buffer;
+     * the round result itself is broadcast to every connection once finalized.
+     */
+    public CompletableFuture<VerificationsResult> submitBufferAndRoot(String streamNodeId, String roundId, String bufferNodeId, List<ByteString> envelopes, byte[] bufferRoot, byte[] signedBufferRoot,
+                                                                   String traceParent) {
+        CompletableFuture<VerificationsResult> reply = new CompletableFuture<>();
+        eventLoop.post(new Upload(streamNodeId, roundId, bufferNodeId, envelopes, bufferRoot, signedBufferRoot, traceParent, reply));
+        return reply;
+    }
 
-            System.out.println("\n[SYNC ROUND] Started: " + roundId + " (nodes: " + expectedNodes.size() + ")");
+    /**
+     * Collect acks from clients
+     *
+     * @param blockNumber block the ack is for (0 if the client did not say)
+     */
+    public void receivePeerAck(String nodeId, long blockNumber, boolean accepted) {
+        eventLoop.post(new PeerAck(nodeId, blockNumber, accepted));
+    }
 
-            broadcastRequestBuffer(roundId);
-            scheduleRoundTimeout(roundId, activeRound);
-            System.out.println();
+    public NodeLatencyTracker.NodeLatency getLatencyStats(String nodeId) {
+        return latencyTracker.getStats(nodeId, settings.syncTimeoutMs(), settings.ackDeadlineMs());
+    }
 
-            return roundId;
+    public CommitStats getCommitStats() {
+        return new CommitStats(blocksCommitted.get(), committedWithoutAllAcks.get(), duplicateAcks.get(), lateAcks.get());
+    }
+
+    // ========== Event handling (event loop thread) ==========
+
+    private void handle(Event event) {
+        switch (event) {
+            case StartRound e -> onStartRound(e.initiatorNodeId(), e.traceParent());
+            case Register e -> allConnections.put(e.nodeId(), e.connection());
+            case Disconnect e -> onDisconnect(e.nodeId(), e.connection());
+            case Upload e -> onUpload(e);
+            case UploadVerified e -> onUploadVerified(e);
+            case RoundTimeout e -> onRoundTimeout(e.roundId(), e.nodeIds());
+            case RoundFinalized e -> onRoundFinalized(e);
+            case PeerAck e -> onPeerAck(e);
+            case AckDeadline e -> onAckDeadline(e.roundId());
+            case BlockPersisted e -> onBlockPersisted(e);
         }
     }
 
     /**
-     * Schedule a timeout task for the current round.
-     * If not all nodes submit within the timeout period, remove unresponsive nodes
-     * and finalize the round with remaining nodes.
+     * The loop could not handle the event: fail the reply it carries, so the upload is not left waiting.
      */
-    private void scheduleRoundTimeout(String roundId, SyncRound round) {
-        timeoutExecutor.schedule(() -> {
-            synchronized (roundLock) {
-                if (activeRound != round) {
-                    // System.out.println("Timeout for round " + roundId + " - but a newer round is active, ignoring");
-                    return;
-                }
+    private void handleFailed(Event event, Throwable cause) {
+        switch (event) {
+            case Upload e -> e.reply().completeExceptionally(cause);
+            case UploadVerified e -> e.upload().reply().completeExceptionally(cause);
+            default -> { }
+        }
+    }
 
-                Set<String> unsubmitted = round.getUnsubmittedNodes();
-                if (unsubmitted.isEmpty()) {
-                    // System.out.println("Timeout for round " + roundId + " - but all nodes have submitted, ignoring");
-                    return;
-                }
+    private boolean isBlockInFlight() {
+        return finalizing || pendingRound != null;
+    }
 
-                System.out.println("[TIMEOUT] Round " + roundId + " - missing from: " + unsubmitted);
+    private void onStartRound(String initiatorNodeId, String traceParent) {
+        if (activeRound != null) {
+            return;
+        }
 
-                for (String nodeId : unsubmitted) {
-                    // System.out.println("  Removing node " + nodeId + " from round " + roundId);
-                    round.removeExpectedNode(nodeId);
-                }
+        if (readyRound != null) {
+            // pipeline is full (one block in flight, one waiting); open the next round once it drains
+            deferredInitiator = initiatorNodeId;
+            deferredTraceParent = traceParent;
+            return;
+        }
 
-                if (round.getExpectedNodes().isEmpty()) {
-                    // System.out.println("Round " + roundId + " has no remaining nodes, aborting");
-                    activeRound = null;
-                    round.getCompletionFuture().completeExceptionally(
-                            new RuntimeException("Round aborted: no nodes submitted buffer"));
-                } else if (round.isComplete()) {
-                    // System.out.println("Round " + roundId + " is now complete after timeout - finalizing");
-                    SyncRound completedRound = activeRound;
-                    activeRound = null;
-                    CompletableFuture.supplyAsync(() -> finalizeRound(completedRound));
-                } else {
-                    // System.out.println("Round " + roundId + " still waiting for nodes after timeout: " + round.getUnsubmittedNodes());
-                }
+        openRound(initiatorNodeId, traceParent);
+    }
+
+    private void openRound(String initiatorNodeId, String traceParent) {
+        // Create new round with all known nodes as participants -> only the ones
+        // currently connected and keeping up with their outbound stream
+        Set<String> expectedNodes = new HashSet<>();
+        for (ClientConnection conn : allConnections.values()) {
+            if (!conn.isLagging() && !conn.isClosed()) {
+                expectedNodes.add(conn.getNodeId());
             }
-        }, syncTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        String roundId = UUID.randomUUID().toString();
+        activeRound = new SyncRound(roundId, expectedNodes, initiatorNodeId);
+        speculativeChain.open(roundId);
+
+        Map<String, Long> deadlines = new HashMap<>();
+        for (String nodeId : expectedNodes) {
+            deadlines.put(nodeId, latencyTracker.uploadDeadline(nodeId, settings.syncTimeoutMs()));
+        }
+        latencyTracker.roundOpened(roundId, System.currentTimeMillis());
+        roundStartedNanos = System.nanoTime();
+        metrics.roundStarted();
+        String roundTraceParent = tracer.roundOpened(roundId, initiatorNodeId, traceParent, expectedNodes.size());
+
+        log.atInfo().setMessage("Sync round started")
+                .addKeyValue("round_id", roundId)
+                .addKeyValue("shard", shardId)
+                .addKeyValue("nodes", expectedNodes.size())
+                .addKeyValue("pipelined", isBlockInFlight())
+                .log();
+
+        broadcastRequestBuffer(roundId, deadlines, roundTraceParent);
+        scheduleRoundTimeouts(roundId, deadlines);
+    }
+
+    private void startDeferredRound() {
+        if (deferredInitiator == null || activeRound != null || readyRound != null) {
+            return;
+        }
+        String initiator = deferredInitiator;
+        deferredInitiator = null;
+        openRound(initiator, deferredTraceParent);
     }
 
     /**
-     * Broadcast RequestBuffer to all currently registered connections.
+     * The previous block is out of the pipeline (committed, nacked or failed):
+     * finalize the round that was waiting for it, if any.
+     */
+    private void advancePipeline() {
+        if (readyRound != null && !isBlockInFlight()) {
+            SyncRound round = readyRound;
+            readyRound = null;
+            finalizeAsync(round);
+        }
+        startDeferredRound();
+    }
+
+    /**
+     * Rounds opened after a block that did not commit were verified against its
+     * speculative chain heads. Discard their buffers and collect them again.
+     */
+    private void rollbackFrom(String roundId) {
+        speculativeChain.rollbackFrom(roundId);
+
+        SyncRound stale = (readyRound != null) ? readyRound : activeRound;
+        readyRound = null;
+        activeRound = null;
+        if (stale != null) {
+            log.atInfo().setMessage("Restarting sync round after rollback")
+                    .addKeyValue("round_id", stale.getRoundId())
+                    .addKeyValue("rolled_back", roundId)
+                    .log();
+            tracer.ended(stale.getRoundId(), "restarted", false);
+            restartedRounds.add(stale.getRoundId());
+            if (restartedRounds.size() > RESTARTED_ROUNDS_KEPT) {
+                restartedRounds.remove(restartedRounds.iterator().next());
+            }
+            openRound(stale.getInitiator(), "");
+        }
+    }
+
+    /**
+     * Schedule timeout events for the current round, one per distinct node deadline.
+     * Nodes that have not submitted by their deadline are removed, and the round is
+     * finalized with the remaining nodes.
      */
-    private void broadcastRequestBuffer(String roundId) {
-        if (activeRound == null)
+    private void scheduleRoundTimeouts(String roundId, Map<String, Long> deadlines) {
+        Map<Long, Set<String>> byDeadline = new TreeMap<>();
+        deadlines.forEach((nodeId, deadline) -> byDeadline.computeIfAbsent(deadline, d -> new HashSet<>()).add(nodeId));
+        byDeadline.forEach((deadline, nodeIds) ->
+                timeoutExecutor.schedule(() -> eventLoop.post(new RoundTimeout(roundId, nodeIds)), deadline, TimeUnit.MILLISECONDS));
+    }
+
+    private void onRoundTimeout(String roundId, Set<String> nodeIds) {
+        SyncRound round = activeRound;
+        if (round == null || !round.getRoundId().equals(roundId)) {
+            // a newer round is active (or none), ignoring
             return;
+        }
 
-        RequestBuffer request = RequestBuffer.newBuilder()
-                .setRoundId(roundId)
-                .setMessage("Sync round started - please send your buffer")
-                .build();
+        Set<String> unsubmitted = new HashSet<>(round.getUnsubmittedNodes());
+        unsubmitted.retainAll(nodeIds);
+        if (unsubmitted.isEmpty()) {
+            return;
+        }
 
-        ServerMessage msg = ServerMessage.newBuilder()
-                .setRequestBuffer(request)
-                .build();
+        log.atWarn().setMessage("Sync round timed out waiting for buffers")
+                .addKeyValue("round_id", roundId)
+                .addKeyValue("missing", unsubmitted)
+                .log();
+        metrics.nodesTimedOut(unsubmitted.size());
+        tracer.nodesTimedOut(roundId, unsubmitted);
 
-        // Broadcast to all registered connections
-        broadcast(msg);
+        for (String nodeId : unsubmitted) {
+            round.removeExpectedNode(nodeId);
+        }
+        completeOrAbort(round);
     }
 
-    /**
-     * Register a client connection.
-     */
-    public synchronized void registerClient(String nodeId, ClientConnection connection) {
-        allConnections.put(nodeId, connection);
-        // System.out.println("Registered client connection: " + nodeId);
+    private void onDisconnect(String nodeId, ClientConnection connection) {
+        if (!allConnections.remove(nodeId, connection)) {
+            return; // the node already reconnected on a newer stream
+        }
+
+        SyncRound round = activeRound;
+        if (round != null && round.getUnsubmittedNodes().contains(nodeId)) {
+            round.removeExpectedNode(nodeId);
+            completeOrAbort(round);
+        }
+
+        // it will not ack anymore; it gets the block through catch-up if it is committed
+        if (pendingRound != null && !pendingRound.isPersisting() && pendingRound.removeNode(nodeId) && readyToCommit(pendingRound)) {
+            commit(pendingRound);
+        }
     }
 
     /**
-     * Unregister a client connection.
+     * After nodes were dropped from the round: abort it if nobody is left,
+     * or finalize it if everybody that is left has already submitted.
      */
-    public synchronized void unregisterClient(String nodeId) {
-        allConnections.remove(nodeId);
-        // System.out.println("Unregistered client connection: " + nodeId);
+    private void completeOrAbort(SyncRound round) {
+        if (round.getExpectedNodes().isEmpty()) {
+            log.atInfo().setMessage("Sync round aborted, no node submitted a buffer")
+                    .addKeyValue("round_id", round.getRoundId())
+                    .log();
+            metrics.roundAborted();
+            tracer.ended(round.getRoundId(), "aborted", false);
+            activeRound = null;
+            speculativeChain.rollbackFrom(round.getRoundId());
+            startDeferredRound();
+        } else if (round.isComplete()) {
+            onRoundComplete(round);
+        }
+    }
+
+    private void onUpload(Upload upload) {
+        SyncRound round = activeRound;
+        String uploadRoundId = !upload.roundId().isEmpty() ? upload.roundId() : (round != null) ? round.getRoundId() : null;
+        if (uploadRoundId != null) {
+            // recorded even if the node was already dropped, so its next deadline is longer
+            latencyTracker.uploadReceived(uploadRoundId, upload.bufferNodeId(), System.currentTimeMillis());
+        }
+        if (!upload.roundId().isEmpty() && (round == null || !round.getRoundId().equals(upload.roundId()))) {
+            // late for its round (or the round was restarted)
+            upload.reply().complete(notIncluded(upload.roundId(), "round is no longer collecting buffers"));
+            return;
+        }
+        if (round == null || !round.getExpectedNodes().contains(upload.bufferNodeId())) {
+            upload.reply().complete(new VerificationsResult(false, "ROUND_INACTIVE_OR_NODE_NOT_EXPECTED", "No active round or node not expected"));
+            return;
+        }
+
+        String roundId = round.getRoundId();
+        Span verifySpan = tracer.verifying(roundId, upload.bufferNodeId(), upload.traceParent());
+        ChainHead startHead = speculativeChain.headOf(upload.bufferNodeId());
+        verificationStage
+                .submit(upload.bufferNodeId(), upload.streamNodeId(), startHead, upload.envelopes(), upload.bufferRoot(), upload.signedBufferRoot())
+                .exceptionally(e -> VerificationOutcome.failed("VERIFICATION_ERROR", "Error during verifications: " + e.getMessage()))
+                .thenAccept(outcome -> eventLoop.post(new UploadVerified(upload, roundId, outcome, verifySpan)));
+    }
+
+    private void onUploadVerified(UploadVerified verified) {
+        Upload upload = verified.upload();
+        VerificationsResult result = verified.outcome().result();
+        if (!result.isSuccess()) {
+            verified.span().setStatus(StatusCode.ERROR, result.getErrorCode());
+        }
+        verified.span().end();
+        if (!result.isSuccess()) {
+            upload.reply().complete(result);
+            return;
+        }
+
+        SyncRound round = activeRound;
+        if (round == null || !round.getRoundId().equals(verified.roundId())) {
+            // round closed (or was restarted) while the buffer was being verified
+            upload.reply().complete(notIncluded(verified.roundId(), "round closed while the buffer was being verified"));
+            return;
+        }
+        if (!round.getExpectedNodes().contains(upload.bufferNodeId())) {
+            // node timed out while the buffer was being verified
+            upload.reply().complete(notIncluded(verified.roundId(), "node timed out while the buffer was being verified"));
+            return;
+        }
+
+        round.putBuffer(upload.bufferNodeId(), verified.outcome().envelopes());
+        round.putNodeSignedBufferRoot(upload.bufferNodeId(), HashUtils.bytesToHex(upload.bufferRoot()), HashUtils.bytesToHex(upload.signedBufferRoot()));
+        if (verified.outcome().tail() != null) {
+            speculativeChain.record(round.getRoundId(), upload.bufferNodeId(), verified.outcome().tail());
+        }
+        upload.reply().complete(result);
+
+        // Check if round is complete (all expected nodes submitted)
+        if (round.isComplete()) {
+            onRoundComplete(round);
+        }
     }
 
     /**
-     * Submit a node's buffer to the active round.
-     * Returns a future that completes when the round is finalized.
+     * Reply for a buffer that did not make it into its round: STALE_ROUND only if the round
+     * was re-opened by a rollback (the node is asked again), NOT_INCLUDED otherwise.
      */
-    public CompletableFuture<SyncCoordinator.SyncResultObject> submitBufferAndRoot(String nodeId, List<byte[]> envelopes, byte[] bufferRoot, byte[] signedBufferRoot) {
-        synchronized (roundLock) {
-            if (activeRound == null) {
-                return CompletableFuture.failedFuture(
-                        new IllegalStateException("No active round"));
-            }
+    private VerificationsResult notIncluded(String roundId, String reason) {
+        if (restartedRounds.contains(roundId)) {
+            return new VerificationsResult(false, STALE_ROUND, "Buffer belongs to a superseded round");
+        }
+        return new VerificationsResult(false, NOT_INCLUDED, "Buffer not included in round " + roundId + ": " + reason);
+    }
 
-            activeRound.putBuffer(nodeId, envelopes);
-            activeRound.putNodeSignedBufferRoot(nodeId, HashUtils.bytesToHex(bufferRoot), HashUtils.bytesToHex(signedBufferRoot));
+    private void onRoundComplete(SyncRound round) {
+        metrics.collected(System.nanoTime() - roundStartedNanos);
+        tracer.collected(round.getRoundId());
+        activeRound = null;
+        if (isBlockInFlight()) {
+            // block numbers and prev roots are assigned at finalization, so wait for the previous block
+            readyRound = round;
+            return;
+        }
+        finalizeAsync(round);
+    }
 
-            // Check if round is complete (all expected nodes submitted)
-            if (activeRound.isComplete()) {
-                // System.out.println("Round " + activeRound.getRoundId() + " is complete - finalizing");
+    private void finalizeAsync(SyncRound round) {
+        finalizing = true;
+        Span finalizeSpan = tracer.finalizing(round.getRoundId());
+        CompletableFuture
+                .supplyAsync(() -> {
+                    long start = System.nanoTime();
+                    try (Scope ignored = finalizeSpan.makeCurrent()) {
+                        return finalizeRound(round);
+                    } finally {
+                        metrics.finalized(System.nanoTime() - start);
+                    }
+                }, workerPool)
+                .whenComplete((pending, error) -> eventLoop.post(new RoundFinalized(round, pending, error)));
+    }
 
-                // Finalize asynchronously
-                SyncRound round = activeRound;
-                activeRound = null; // Clear active round
+    private void onRoundFinalized(RoundFinalized finalized) {
+        finalizing = false;
+        String roundId = finalized.round().getRoundId();
+        tracer.finalized(roundId);
+
+        if (finalized.error() != null) {
+            log.atError().setMessage("Sync round finalization failed")
+                    .addKeyValue("round_id", roundId)
+                    .setCause(finalized.error())
+                    .log();
+            tracer.ended(roundId, "finalize-failed", false);
+            // like a failed commit: clients release the round (and the later ones, which are restarted)
+            broadcastRoundFailed(roundId, finalized.error());
+            rollbackFrom(roundId);
+        } else if (finalized.pending() != null) {
+            pendingRound = finalized.pending();
+            latencyTracker.blockBroadcast(pendingRound.getResult().getBlockNumber(), System.currentTimeMillis());
+            blockBroadcastNanos = System.nanoTime();
+            broadcastSyncResult(pendingRound.getResult(), tracer.broadcast(roundId, pendingRound.getResult().getBlockNumber()));
+            if (settings.commitPolicy() == CommitPolicy.QUORUM_DEADLINE) {
+                long ackDeadline = latencyTracker.ackDeadline(pendingRound.getNodes(), settings.ackDeadlineMs());
+                timeoutExecutor.schedule(() -> eventLoop.post(new AckDeadline(roundId)), ackDeadline, TimeUnit.MILLISECONDS);
+            }
+            if (readyToCommit(pendingRound)) {
+                commit(pendingRound); // nobody of the round is left to ack
+            }
+            return;
+        } else {
+            // empty round: nothing to ack
+            speculativeChain.commit(roundId);
+            tracer.ended(roundId, "empty", true);
+        }
 
-                return CompletableFuture.supplyAsync(() -> finalizeRound(round));
-            } else {
-                // Return the round's completion future
-                return activeRound.getCompletionFuture();
+        advancePipeline();
+    }
+
+    private void onPeerAck(PeerAck ack) {
+        if (pendingRound == null || pendingRound.isPersisting()
+                || (ack.blockNumber() != 0 && ack.blockNumber() != pendingRound.getResult().getBlockNumber())) {
+            // the block was already committed (or voided) without this ack
+            lateAcks.incrementAndGet();
+            if (ack.accepted() && ack.blockNumber() != 0) {
+                latencyTracker.ackReceived(ack.blockNumber(), ack.nodeId(), System.currentTimeMillis());
             }
+            return;
+        }
+
+        if (!ack.accepted()) {
+            log.atWarn().setMessage("Block nacked, voiding it")
+                    .addKeyValue("block", pendingRound.getResult().getBlockNumber())
+                    .addKeyValue("node_id", ack.nodeId())
+                    .log();
+            metrics.blockVoided();
+            String blockRoot = pendingRound.getRoot().getBlockRoot();
+            String roundId = pendingRound.getResult().getRoundId();
+            pendingRound = null;
+
+            tracer.ack(roundId, ack.nodeId(), false);
+            broadcastCommit(blockRoot, false, tracer.roundTraceParent(roundId));
+            tracer.ended(roundId, "nacked", false);
+            rollbackFrom(roundId);
+            advancePipeline();
+            return;
+        }
+
+        if (!pendingRound.recordAck(ack.nodeId())) {
+            duplicateAcks.incrementAndGet(); // acked twice, or not a node of the round
+            return;
+        }
+        tracer.ack(pendingRound.getResult().getRoundId(), ack.nodeId(), true);
+        latencyTracker.ackReceived(pendingRound.getResult().getBlockNumber(), ack.nodeId(), System.currentTimeMillis());
+        if (readyToCommit(pendingRound)) {
+            commit(pendingRound);
+        }
+    }
+
+    private void onAckDeadline(String roundId) {
+        PendingRound round = pendingRound;
+        if (round == null || round.isPersisting() || !round.getResult().getRoundId().equals(roundId)) {
+            return;
+        }
+        round.markDeadlinePassed();
+        if (readyToCommit(round)) {
+            commit(round);
+        }
+    }
+
+    private boolean readyToCommit(PendingRound round) {
+        if (round.ackCount() == round.nodeCount()) {
+            return true;
+        }
+        boolean quorum = round.ackCount() >= round.quorum(settings.minAcks());
+        return switch (settings.commitPolicy()) {
+            case ALL -> false;
+            case QUORUM -> quorum;
+            case QUORUM_DEADLINE -> quorum && round.isDeadlinePassed();
+        };
+    }
+
+    private void commit(PendingRound round) {
+        if (round.ackCount() < round.nodeCount()) {
+            committedWithoutAllAcks.incrementAndGet();
+            log.atInfo().setMessage("Committing block without all acks")
+                    .addKeyValue("block", round.getResult().getBlockNumber())
+                    .addKeyValue("acks", round.ackCount())
+                    .addKeyValue("nodes", round.nodeCount())
+                    .addKeyValue("policy", settings.commitPolicy())
+                    .addKeyValue("missing", round::missingAcks)
+                    .log();
+        }
+        metrics.ackWaited(System.nanoTime() - blockBroadcastNanos);
+        tracer.committing(round.getResult().getRoundId(), round.ackCount(), round.nodeCount());
+        round.markPersisting();
+        CompletableFuture
+                .runAsync(() -> {
+                    long start = System.nanoTime();
+                    persistAll(round);
+                    metrics.persisted(System.nanoTime() - start);
+                }, workerPool)
+                .whenComplete((ignored, error) -> eventLoop.post(new BlockPersisted(round, error)));
+    }
+
+    private void onBlockPersisted(BlockPersisted persisted) {
+        String roundId = persisted.round().getResult().getRoundId();
+        if (persisted.error() != null) {
+            log.atError().setMessage("Failed to persist block")
+                    .addKeyValue("block_root", persisted.round().getRoot().getBlockRoot())
+                    .setCause(persisted.error())
+                    .log();
+        }
+
+        broadcastCommit(persisted.round().getRoot().getBlockRoot(), persisted.error() == null, tracer.roundTraceParent(roundId));
+        tracer.ended(roundId, (persisted.error() == null) ? "committed" : "persist-failed", persisted.error() == null);
+        pendingRound = null;
+        if (persisted.error() == null) {
+            blocksCommitted.incrementAndGet();
+            metrics.blockCommitted();
+            speculativeChain.commit(roundId);
+            SyncResultObject result = persisted.round().getResult();
+            recentBlockCache.put(RecentBlockCache.CachedBlock.of(shardId, result.getBlockNumber(), result.getOrderedEnvelopes(),
+                    result.getBlockRoot(), result.getSignedBlockRoot(), result.getPrevBlockRoot()));
+        } else {
+            metrics.blockVoided();
+            rollbackFrom(roundId);
         }
+        advancePipeline();
+    }
+
+    /**
+     * Broadcast RequestBuffer to all currently registered connections.
+     */
+    private void broadcastRequestBuffer(String roundId, Map<String, Long> deadlines, String traceParent) {
+        // nodes with the same deadline share one encoded frame
+        Map<Long, ServerFrame> frames = new HashMap<>();
+        Function<Long, ServerFrame> frameFor = deadline -> ServerFrame.of(ServerMessage.newBuilder()
+                .setRequestBuffer(RequestBuffer.newBuilder()
+                        .setRoundId(roundId)
+                        .setMessage("Sync round started - please send your buffer")
+                        .setDeadlineMs(deadline)
+                        .setTraceParent(traceParent)
+                        .build())
+                .build());
+
+        // Broadcast to all registered connections (nodes not in the round get the default deadline)
+        broadcast("RequestBuffer", conn -> frames.computeIfAbsent(
+                deadlines.getOrDefault(conn.getNodeId(), settings.syncTimeoutMs()), frameFor));
+    }
+
+    private void broadcastCommit(String blockRoot, boolean success, String traceParent) {
+        Ack commit = Ack.newBuilder()
+                .setMessage("commit " + blockRoot)
+                .setSuccess(success)
+                .setTraceParent(traceParent)
+                .build();
+
+        ServerMessage msg = ServerMessage.newBuilder()
+                .setAck(commit)
+                .build();
+
+        broadcast(msg);
+    }
+
+    private void broadcastRoundFailed(String roundId, Throwable cause) {
+        Error error = Error.newBuilder()
+                .setCode(ROUND_FAILED)
+                .setMessage("Sync round could not be finalized: " + cause.getMessage())
+                .setRoundId(roundId)
+                .build();
+
+        ServerMessage msg = ServerMessage.newBuilder()
+                .setError(error)
+                .build();
+
+        broadcast(msg);
     }
 
     /**
      * Apply SR3 violation: reorder envelopes by moving first to last (order tampering).
      * This simulates server misbehavior that breaks envelope ordering after verification.
      */
-    private List<byte[]> applySr3Violation(List<EnvelopeWithMeta> allEnvelopes) {
+    private List<ByteString> applySr3Violation(List<VerifiedEnvelope> allEnvelopes) {
         if (allEnvelopes.size() > 1) {
-            EnvelopeWithMeta first = allEnvelopes.remove(0);
+            VerifiedEnvelope first = allEnvelopes.remove(0);
             allEnvelopes.add(first);
-            System.out.println("[VIOLATION] SR3: Reordered envelopes (moved first to last)");
+            log.warn("[VIOLATION] SR3: Reordered envelopes (moved first to last)");
         }
 
-        List<byte[]> orderedBytes = new ArrayList<>();
-        for (EnvelopeWithMeta envelope : allEnvelopes) {
-            orderedBytes.add(envelope.envelopeBytes);
+        List<ByteString> orderedBytes = new ArrayList<>();
+        for (VerifiedEnvelope envelope : allEnvelopes) {
+            orderedBytes.add(envelope.bytes());
         }
         return orderedBytes;
     }
@@ -240,16 +729,16 @@ public class SyncCoordinator {
      * Apply SR4 violation: modify first envelope's prev_envelope_hash to break chain.
      * This simulates server misbehavior that breaks per-sender history continuity.
      */
-    private void applySr4Violation(List<EnvelopeWithMeta> allEnvelopes) {
+    private void applySr4Violation(List<VerifiedEnvelope> allEnvelopes) {
         if (allEnvelopes.size() != 1) {
             return;
         }
 
         try {
-            EnvelopeWithMeta firstEnv = allEnvelopes.get(0);
+            VerifiedEnvelope firstEnv = allEnvelopes.get(0);
             
             // Parse the envelope JSON
-            String json = new String(firstEnv.envelopeBytes, StandardCharsets.UTF_8);
+            String json = firstEnv.bytes().toStringUtf8();
             JsonObject jsonObj = JsonParser.parseString(json).getAsJsonObject();
             JsonObject metadataObj = jsonObj.getAsJsonObject("metadata");
             
@@ -259,20 +748,19 @@ public class SyncCoordinator {
             metadataObj.addProperty("prev_envelope_hash", fakeHash);
             
             // Serialize back to bytes
-            byte[] modifiedBytes = jsonObj.toString().getBytes(StandardCharsets.UTF_8);
+            ByteString modifiedBytes = ByteString.copyFromUtf8(jsonObj.toString());
             
             // Replace in the list
-            allEnvelopes.set(0, new EnvelopeWithMeta(
-                    firstEnv.signerNode,
+            allEnvelopes.set(0, VerifiedEnvelope.of(
+                    firstEnv.signerNodeId(),
                     modifiedBytes,
-                    HashUtils.sha256Hex(modifiedBytes),
-                    Envelope.fromJson(jsonObj),
-                    firstEnv.timestamp
+                    HashUtils.sha256(modifiedBytes),
+                    Envelope.fromJson(jsonObj)
             ));
             
-            System.out.println("[VIOLATION] SR4: Modified first envelope's prev_envelope_hash from " + originalHash + " to " + fakeHash);
+            log.warn("[VIOLATION] SR4: Modified first envelope's prev_envelope_hash from {} to {}", originalHash, fakeHash);
         } catch (Exception e) {
-            System.out.println("[VIOLATION] SR4: Failed to apply violation - " + e.getMessage());
+            log.warn("[VIOLATION] SR4: Failed to apply violation - {}", e.getMessage());
         }
     }
 
@@ -281,125 +769,99 @@ public class SyncCoordinator {
      * <p>
      * For now: Simple timestamp-based ordering, no security checks.
      */
-    @Transactional
-    protected SyncCoordinator.SyncResultObject finalizeRound(SyncRound round) {
-        System.out.println("\n[FINALIZATION] Round: " + round.getRoundId());
+    private PendingRound finalizeRound(SyncRound round) {
+        log.atDebug().setMessage("Finalizing sync round")
+                .addKeyValue("round_id", round.getRoundId())
+                .log();
 
-        // 1. Collect all envelopes with metadata
-        List<EnvelopeWithMeta> allEnvelopes = new ArrayList<>();
-        Map<String, List<byte[]>> buffers = round.getBuffers();
+        // 1. Collect the verified envelopes (parsed and hashed when their buffer was verified)
+        Map<String, List<VerifiedEnvelope>> buffers = round.getBuffers();
 
         if (areEmpty(buffers.values())) return null;
 
-        for (Map.Entry<String, List<byte[]>> entry : buffers.entrySet()) {
-            String nodeId = entry.getKey();
-            Node signerNode = nodeRepository.findByNodeId(nodeId);
-
-            if (signerNode == null) {
-                // System.out.println("Unknown node " + nodeId + " in round " + round.getRoundId() + " - skipping");
-                continue;
-            }
-
-            for (byte[] envelopeBytes : entry.getValue()) {
-                try {
-                    // Parse envelope
-                    String json = new String(envelopeBytes, StandardCharsets.UTF_8);
-                    JsonObject jsonObj = JsonParser.parseString(json).getAsJsonObject();
-                    Envelope envelope = Envelope.fromJson(jsonObj);
-
-                    // Extract timestamp for ordering
-                    Metadata metadata = envelope.getMetadata();
-                    String tsStr = metadata.getMetadataTimestamp();
-                    Instant timestamp = Instant.parse(tsStr);
-
-                    String hash = HashUtils.sha256Hex(envelopeBytes);
-
-                    allEnvelopes.add(new EnvelopeWithMeta(signerNode, envelopeBytes, hash, envelope, timestamp));
-
-                } catch (Exception e) {
-                    // System.out.println("Failed to parse envelope from " + nodeId + ": " + e.getMessage());
-                }
-            }
-        }
-
-        // 2. Sort by timestamp (tie-breakers: node sequence number, node ID)
-        allEnvelopes.sort(Comparator
-                .comparing((EnvelopeWithMeta e) -> e.timestamp)
-                .thenComparingLong(e -> e.envelope.getMetadata().getNodeSequenceNumber())
-                .thenComparing(e -> e.signerNode.getNodeId()));
+        // 2. Order by timestamp (tie-breakers: node sequence number, node ID), merging the per-node buffers
+        List<VerifiedEnvelope> allEnvelopes = EnvelopeOrdering.order(buffers.values());
 
         // System.out.println("Ordered " + allEnvelopes.size() + " envelopes for round " + round.getRoundId());
         
         // Apply SR4 violation: modify first envelope's prev_envelope_hash (diverging history)
-        if (violationSr4Enabled) {
+        if (settings.violationSr4Enabled()) {
             applySr4Violation(allEnvelopes);
         }
         
-        List<byte[]> orderedBytes = new ArrayList<>();
-        for (EnvelopeWithMeta envelope : allEnvelopes) {
-            orderedBytes.add(envelope.envelopeBytes);
+        List<ByteString> orderedBytes = new ArrayList<>();
+        List<byte[]> leafHashes = new ArrayList<>();
+        for (VerifiedEnvelope envelope : allEnvelopes) {
+            orderedBytes.add(envelope.bytes());
+            leafHashes.add(envelope.hash());
         }
         
         // 3. Build result
         SyncCoordinator.SyncResultObject result = new SyncCoordinator.SyncResultObject();
         result.setRoundId(round.getRoundId());
         
-        byte[] blockRoot = MerkleUtils.computeMerkleRoot(orderedBytes);
+        // envelopes were already hashed above; reuse those hashes as the Merkle leaves
+        byte[] blockRoot = MerkleUtils.computeMerkleRootFromLeafHashes(leafHashes);
         
         // Apply SR3 violation: reorder envelopes (order tampering) AFTER block root creation
-        if (violationSr3Enabled) {
+        if (settings.violationSr3Enabled()) {
             orderedBytes = applySr3Violation(allEnvelopes);
         }
 
         result.setOrderedEnvelopes(orderedBytes);
+
+        // signers and hashes in the final order, for per-recipient delta results
+        List<String> orderedSignerIds = new ArrayList<>(allEnvelopes.size());
+        List<byte[]> orderedHashes = new ArrayList<>(allEnvelopes.size());
+        for (VerifiedEnvelope envelope : allEnvelopes) {
+            orderedSignerIds.add(envelope.signerNodeId());
+            orderedHashes.add(envelope.hash());
+        }
+        result.setOrderedSignerIds(orderedSignerIds);
+        result.setOrderedHashes(orderedHashes);
+        Span signSpan = tracer.signing();
         try {
-            PrivateKey serverSigningKey = KeyLoader.loadPrivateKeyFromKeystore(edPrivateKeyAlias, keystorePath, keystorePassword);
-            byte[] signedBlockRoot = SecureDocumentProtocol.signData(blockRoot, serverSigningKey);
+            long signStart = System.nanoTime();
+            byte[] signedBlockRoot = blockSigningService.sign(blockRoot);
+            metrics.signed(System.nanoTime() - signStart);
             result.setBlockRoot(blockRoot);
             result.setSignedBlockRoot(signedBlockRoot);
         } catch (Exception e) {
-            System.out.println("Failed to load server signing key: " + e.getMessage());
-            throw new RuntimeException("Server signing key load failure", e);
+            log.error("Failed to sign block root", e);
+            signSpan.setStatus(StatusCode.ERROR, "signing failed");
+            throw new RuntimeException("Block root signing failure", e);
+        } finally {
+            signSpan.end();
         }
 
-        SignedBlockMerkleRoot lastSignedBlockMerkleRoot = signedBlockMerkleRootRepository.findByHighestBlockNumber().orElse(null);
-        long prevBlockNumber = 0;
-        byte[] prevBlockRoot = null;
-        if (lastSignedBlockMerkleRoot != null) {
-            prevBlockNumber = lastSignedBlockMerkleRoot.getBlockNumber();
-            prevBlockRoot = HashUtils.hexToBytes(lastSignedBlockMerkleRoot.getBlockRoot());
-        }
+        // previous block = last committed one of this shard (finalization waits for the in-flight block to commit)
+        LedgerHeadService.ShardHead shardHead = ledgerHeadService.shardHead(shardId);
+        long prevBlockNumber = shardHead.lastBlockNumber();
+        byte[] prevBlockRoot = (shardHead.lastBlockRoot() != null) ? HashUtils.hexToBytes(shardHead.lastBlockRoot()) : null;
 
         result.setBlockNumber(prevBlockNumber + 1);
         result.setPrevBlockRoot(prevBlockRoot);
         result.setPerNodeSignedBufferRoots(round.getPerNodeSignedBufferRoots());
         
         SignedBlockMerkleRoot newSignedBlockMerkleRoot = new SignedBlockMerkleRoot(
+            shardId,
             prevBlockNumber + 1,
                 HashUtils.bytesToHex(blockRoot),
                 (prevBlockRoot != null) ? HashUtils.bytesToHex(prevBlockRoot) : null
             );
 
-        pendingRound = new PendingRound(allEnvelopes, newSignedBlockMerkleRoot, round.getExpectedNodes().size());
-
-        // 4. Complete the round's future
-        round.getCompletionFuture().complete(result);
-        
-        broadcastSyncResult(result);
-        return result;
+        // 4. Hand the block back to the event loop, which broadcasts it and collects acks
+        return new PendingRound(result, allEnvelopes, newSignedBlockMerkleRoot, round.getExpectedNodes());
     }
 
-    private void broadcastSyncResult(SyncCoordinator.SyncResultObject result) {
+    private void broadcastSyncResult(SyncCoordinator.SyncResultObject result, String traceParent) {
         // System.out.println("  -> Sending result to " + this.nodeId + " (" + result.getOrderedEnvelopes().size() + " envelopes)");
 
         SyncResult.Builder builder = SyncResult.newBuilder()
-                .setRoundId(result.getRoundId());
-
-        // Add all ordered envelopes
-        for (byte[] env : result.getOrderedEnvelopes()) {
-            builder.addOrderedEnvelopes(ByteString.copyFrom(env));
-        }
+                .setRoundId(result.getRoundId())
+                .setTraceParent(traceParent);
 
+        // Ordered envelopes are added per recipient by SyncResultFrames
         builder.setBlockNumber(result.getBlockNumber());
         builder.setBlockRoot(ByteString.copyFrom(result.getBlockRoot()));
         builder.setSignedBlockRoot(ByteString.copyFrom(result.getSignedBlockRoot()));
@@ -417,239 +879,166 @@ public class SyncCoordinator {
             builder.setPrevBlockRoot(ByteString.copyFrom(result.getPrevBlockRoot()));
         }
 
-        ServerMessage msg = ServerMessage.newBuilder()
-                .setSyncResult(builder.build())
-                .build();
+        SyncResultFrames frames = new SyncResultFrames(builder.build(), result.getOrderedEnvelopes(),
+                result.getOrderedSignerIds(), result.getOrderedHashes());
 
-        // responseObserver.onNext(msg);
-        broadcast(msg);
+        // nodes that support it get a delta result without the envelopes they uploaded themselves
+        broadcast("SyncResult", conn -> conn.supportsDelta() ? frames.forRecipient(conn.getNodeId()) : frames.full());
     }
 
     /**
-     * Collect acks from clients
+     * Queue a message on every registered connection. Runs on the event loop thread
+     * and never blocks: each connection writes as fast as its client reads.
+     * The message is encoded once and the same frame is shared by all connections.
      */
-    public void receivePeerAck(boolean accepted) {
-        synchronized (roundLock) {
-            if (pendingRound == null)
-                return;
-            
-            if (!accepted) {
-                System.out.println("[!] Block nacked. Clearing pending round...");
-                // Capture root BEFORE setting pendingRound to null
-                String blockRoot = pendingRound.getRoot().getBlockRoot();
-                pendingRound = null;
-                
-                Ack commit = Ack.newBuilder()
-                        .setMessage("commit " + blockRoot)
-                        .setSuccess(false)
-                        .build();
-
-                ServerMessage msg = ServerMessage.newBuilder()
-                        .setAck(commit)
-                        .build();
-
-                broadcast(msg);
-                return;
-            }
-
-            if (pendingRound.isAcked()) {
-                persistAll();
-
-                Ack commit = Ack.newBuilder()
-                        .setMessage("commit " + pendingRound.getRoot().getBlockRoot())
-                        .setSuccess(true)
-                        .build();
-
-                ServerMessage msg = ServerMessage.newBuilder()
-                        .setAck(commit)
-                        .build();
-
-                broadcast(msg);
-                pendingRound = null;
-            }
+    private void broadcast(ServerMessage msg) {
+        String msgType = "Unknown";
+        if (msg.hasRequestBuffer()) {
+            msgType = "RequestBuffer";
+        } else if (msg.hasSyncResult()) {
+            msgType = "SyncResult";
+        } else if (msg.hasAck()) {
+            msgType = "Ack";
+        } else if (msg.hasError()) {
+            msgType = "Error";
         }
+
+        ServerFrame frame = ServerFrame.of(msg);
+        broadcast(msgType, conn -> frame);
     }
 
-    public void broadcast(ServerMessage msg) {
-        synchronized (roundLock) {
-            String msgType = "Unknown";
-            if (msg.hasRequestBuffer()) {
-                msgType = "RequestBuffer";
-            } else if (msg.hasSyncResult()) {
-                msgType = "SyncResult";
-            } else if (msg.hasAck()) {
-                msgType = "Ack";
-            } else if (msg.hasError()) {
-                msgType = "Error";
-            }
-            
-            for (ClientConnection conn : allConnections.values()) {
-                try {
-                    conn.observer.onNext(msg);
-                    System.out.println("  -> Sent " + msgType + " to node: " + conn.nodeId);
-                } catch (Exception e) {
-                    System.out.println("Failed to send " + msgType + " to " + conn.nodeId + ": " + e.getMessage());
+    /**
+     * Queue a per-connection frame on every registered connection.
+     */
+    private void broadcast(String msgType, Function<ClientConnection, ServerFrame> frameFor) {
+        int queued = 0;
+        long bytes = 0;
+        List<String> skipped = new ArrayList<>();
+        for (ClientConnection conn : allConnections.values()) {
+            ServerFrame frame = frameFor.apply(conn);
+            if (conn.send(frame)) {
+                queued++;
+                bytes += frame.size();
+            } else {
+                skipped.add(conn.getNodeId());
+                if (conn.isClosed()) {
+                    // disconnected as a slow consumer (or the stream is gone): drop it from rounds too
+                    eventLoop.post(new Disconnect(conn.getNodeId(), conn));
                 }
             }
         }
+
+        metrics.broadcast(msgType, bytes);
+        log.atDebug().setMessage("Broadcast queued")
+                .addKeyValue("type", msgType)
+                .addKeyValue("shard", shardId)
+                .addKeyValue("nodes", queued)
+                .addKeyValue("bytes", bytes)
+                .addKeyValue("skipped", skipped)
+                .log();
+        if (!skipped.isEmpty()) {
+            log.warn("{} not delivered to lagging or closed node(s) {}", msgType, skipped);
+        }
     }
 
     /**
-     * Persist pending round objects.
+     * Persist pending round objects (one transaction for the whole block).
      */
-    private void persistAll() {
-        long nextGlobalSeq = computeNextGlobalSequence();
-
-        List<EnvelopeWithMeta> envelopes = pendingRound.getEnvelopes();
-        SignedBlockMerkleRoot root = pendingRound.getRoot();
-
-        for (EnvelopeWithMeta meta : envelopes) {
-            try {
-                // Store file in node-specific directory
-                String filename = meta.hash + ".json";
-                Path filePath = fileStorageService.store(meta.envelopeBytes, filename, meta.signerNode.getNodeId());
-
-                // Update or create NodeSyncState (upsert)
-                NodeSyncState syncState = nodeSyncStateRepository.findByNodeId(meta.signerNode.getNodeId());
-                if (syncState == null) {
-                    syncState = new NodeSyncState();
-                    syncState.setNode(meta.signerNode);
-                    syncState.setNodeId(meta.signerNode.getNodeId());
-                }
-                syncState.setLastSequenceNumber(meta.envelope.getMetadata().getNodeSequenceNumber());
-                syncState.setLastEnvelopeHash(meta.hash);
-
-                // Create DB entity
-                ReportEntity entity = new ReportEntity();
-                entity.setEnvelopeHash(meta.hash);
-                entity.setSignerNode(meta.signerNode);
-                entity.setNodeSequenceNumber(meta.envelope.getMetadata().getNodeSequenceNumber());
-                entity.setGlobalSequenceNumber(nextGlobalSeq++);
-                entity.setMetadataTimestamp(OffsetDateTime.ofInstant(meta.timestamp, ZoneOffset.UTC));
-                entity.setPrevReportHash(meta.envelope.getMetadata().getPrevEnvelopeHash());
-                entity.setFilePath(filePath.toString());
-
-                reportRepository.save(entity);
-                nodeSyncStateRepository.save(syncState);
-
-                System.out.println(
-                        "Persisted envelope: " + meta.hash + " (global_seq=" + entity.getGlobalSequenceNumber() + ")");
-
-                signedBlockMerkleRootRepository.save(root);
+    private void persistAll(PendingRound pendingRound) {
+        blockPersistenceService.persistBlock(pendingRound.getEnvelopes(), pendingRound.getRoot());
+    }
 
-            } catch (Exception e) {
-                System.out.println("Failed to persist envelope " + meta.hash + ": " + e.getMessage());
-            }
+    private boolean areEmpty(Collection<List<VerifiedEnvelope>> collection) {
+        for (List<VerifiedEnvelope> list : collection) {
+            if (!list.isEmpty()) return false;
         }
+        return true;
     }
 
-    public boolean verifyEnvelopeChain(Node node, List<Envelope> envelopes) {
-        NodeSyncState syncState = nodeSyncStateRepository.findByNodeId(node.getNodeId());
-        String lastHash = (syncState != null) ? syncState.getLastEnvelopeHash() : null;
-        Long lastSeqObj = (syncState != null) ? syncState.getLastSequenceNumber() : null;
-        long expectedSeq = (lastSeqObj != null) ? lastSeqObj + 1 : 1L;
-
-        for (Envelope env : envelopes) {
-            Metadata meta = env.getMetadata();
-            
-            // Check previous hash envelope chain
-            if ((lastHash == null && meta.getPrevEnvelopeHash() != null && !meta.getPrevEnvelopeHash().isEmpty()) || 
-                (lastHash != null && !lastHash.equals(meta.getPrevEnvelopeHash()))) {
-                System.out.println(" -> Envelope chain check failed for node " + node.getNodeId() +
-                        ": expected prev hash " + lastHash + ", got " + meta.getPrevEnvelopeHash());
-                return false;
-            }
-
-            // Check sequence envelope chain
-            if (meta.getNodeSequenceNumber() != expectedSeq) {
-                System.out.println(" -> Envelope chain check failed for node " + node.getNodeId() +
-                        ": expected seq " + expectedSeq + ", got " + meta.getNodeSequenceNumber());
-                return false;
-            }
-
-            // Update for next envelope
-            lastHash = env.computeHashHex();
-            expectedSeq++;
-        }
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 
-        return true;
+    /**
+     * Per-coordinator settings (sync.* in application.yaml).
+     */
+    public record Settings(long syncTimeoutMs, int workerThreads, boolean violationSr3Enabled, boolean violationSr4Enabled,
+                           CommitPolicy commitPolicy, int minAcks, long ackDeadlineMs, NodeLatencyTracker.Settings deadlines) {
     }
 
-    public VerificationsResult performAllVerifications(String bufferNodeId, String expectedNodeId, List<byte[]> envelopes, byte[] bufferRoot, byte[] signedBufferRoot) {
-        if (!bufferNodeId.equals(expectedNodeId)) {
-            System.out.println("[X] Node ID mismatch: stream=" + expectedNodeId + ", upload=" + bufferNodeId);
-            return new VerificationsResult(false, "NODE_ID_MISMATCH", "Node ID in upload doesn't match connection");
-        }
+    public record CommitStats(long blocksCommitted, long committedWithoutAllAcks, long duplicateAcks, long lateAcks) {
+    }
 
-        if (activeRound == null || !activeRound.getExpectedNodes().contains(bufferNodeId)) {
-            return new VerificationsResult(false, "ROUND_INACTIVE_OR_NODE_NOT_EXPECTED", "No active round or node not expected");
-        }
+    // ========== Events ==========
 
-        System.out.println("\n[VERIFICATION PIPELINE] Buffer from " + bufferNodeId);
+    private sealed interface Event {
+    }
 
-        Node node = nodeRepository.findByNodeId(bufferNodeId);
+    private record StartRound(String initiatorNodeId, String traceParent) implements Event {
+    }
 
-        try {
-            PublicKey signPubKey = KeyLoader.pemStringToPublicKey(node.getSignPubKey(), "Ed25519");
+    private record Register(String nodeId, ClientConnection connection) implements Event {
+    }
 
-            if (!SecureDocumentProtocol.verifySignature(bufferRoot, signedBufferRoot, signPubKey)) {
-                System.out.println("  [X] Step 1: Buffer signature verification FAILED");
-                return new VerificationsResult(false, "INVALID_SIGNATURE", "Buffer signature verification failed");
-            }
-            System.out.println("  [V] Step 1: Buffer signature verified");
+    private record Disconnect(String nodeId, ClientConnection connection) implements Event {
+    }
 
-            if (!MerkleUtils.verifyMerkleRoot(envelopes, bufferRoot)) {
-                System.out.println("  [X] Step 2: Buffer Merkle root verification FAILED");
-                return new VerificationsResult(false, "INVALID_MERKLE_ROOT", "Buffer Merkle root verification failed");
-            }
-            System.out.println("  [V] Step 2: Buffer Merkle root verified");
+    private record Upload(String streamNodeId, String roundId, String bufferNodeId, List<ByteString> envelopes, byte[] bufferRoot,
+                          byte[] signedBufferRoot, String traceParent, CompletableFuture<VerificationsResult> reply) implements Event {
+    }
 
-            List<Envelope> envelopesObjs = new ArrayList<>();
-            for (byte[] envBytes : envelopes) {
-                envelopesObjs.add(Envelope.fromBytes(envBytes));
-            }
+    private record UploadVerified(Upload upload, String roundId, VerificationOutcome outcome, Span span) implements Event {
+    }
 
-            if (!verifyEnvelopeChain(node, envelopesObjs)) {
-                System.out.println("  [X] Step 3: Envelope chain verification FAILED");
-                return new VerificationsResult(false, "INVALID_ENVELOPE_CHAIN", "Envelope chain verification failed");
-            }
-            System.out.println("  [V] Step 3: Envelope chain verified");
-            System.out.println("  [V] ALL VERIFICATIONS PASSED\n");
+    private record RoundTimeout(String roundId, Set<String> nodeIds) implements Event {
+    }
 
-        } catch (Exception e) {
-            System.out.println("  [X] Verification error: " + e.getMessage());
-            return new VerificationsResult(false, "VERIFICATION_ERROR", "Error during verifications: " + e.getMessage());
-        }
+    private record RoundFinalized(SyncRound round, PendingRound pending, Throwable error) implements Event {
+    }
 
-        return new VerificationsResult(true, null, null);
+    private record PeerAck(String nodeId, long blockNumber, boolean accepted) implements Event {
     }
 
-    private long computeNextGlobalSequence() {
-        Long max = reportRepository.findMaxGlobalSequenceNumber();
-        return (max == null) ? 1L : max + 1L;
+    private record AckDeadline(String roundId) implements Event {
     }
 
-    private boolean areEmpty(Collection<List<byte[]>> collection) {
-        for (List<byte[]> list : collection) {
-            if (!list.isEmpty()) return false;
-        }
-        return true;
+    private record BlockPersisted(PendingRound round, Throwable error) implements Event {
     }
 
     // ========== Helper Classes ==========
 
     private static class PendingRound {
-        private final List<EnvelopeWithMeta> envelopes;
+        private final SyncCoordinator.SyncResultObject result;
+        private final List<VerifiedEnvelope> envelopes;
         private final SignedBlockMerkleRoot root;
-        private int acksLeft;
-
-        public PendingRound(List<EnvelopeWithMeta> envelopes, SignedBlockMerkleRoot root, int acksNeeded) {
+        // nodes of the round by bit index; "counted" are the nodes whose ack is still expected or was received
+        private final List<String> nodes;
+        private final Map<String, Integer> nodeIndex = new HashMap<>();
+        private final BitSet counted = new BitSet();
+        private final BitSet acked = new BitSet();
+        private boolean persisting = false;
+        private boolean deadlinePassed = false;
+
+        public PendingRound(SyncCoordinator.SyncResultObject result, List<VerifiedEnvelope> envelopes, SignedBlockMerkleRoot root, Set<String> roundNodes) {
+            this.result = result;
             this.envelopes = envelopes;
             this.root = root;
-            this.acksLeft = acksNeeded;
+            this.nodes = List.copyOf(roundNodes);
+            for (int i = 0; i < nodes.size(); i++) {
+                nodeIndex.put(nodes.get(i), i);
+            }
+            counted.set(0, nodes.size());
+        }
+
+        public SyncCoordinator.SyncResultObject getResult() {
+            return result;
         }
 
-        public List<EnvelopeWithMeta> getEnvelopes() {
+        public List<VerifiedEnvelope> getEnvelopes() {
             return envelopes;
         }
 
@@ -657,8 +1046,74 @@ public class SyncCoordinator {
             return root;
         }
 
-        public boolean isAcked() {
-            return --acksLeft == 0;
+        /**
+         * Record a node's ack. Returns false if the node is not part of the round or already acked.
+         */
+        public boolean recordAck(String nodeId) {
+            Integer i = nodeIndex.get(nodeId);
+            if (i == null || !counted.get(i) || acked.get(i)) {
+                return false;
+            }
+            acked.set(i);
+            return true;
+        }
+
+        /**
+         * Stop waiting for a node that has not acked. Returns false if there was nothing to drop.
+         */
+        public boolean removeNode(String nodeId) {
+            Integer i = nodeIndex.get(nodeId);
+            if (i == null || !counted.get(i) || acked.get(i)) {
+                return false;
+            }
+            counted.clear(i);
+            return true;
+        }
+
+        public int ackCount() {
+            return acked.cardinality();
+        }
+
+        public int nodeCount() {
+            return counted.cardinality();
+        }
+
+        /**
+         * Acks needed for a quorum: {@code minAcks} if set, otherwise a majority of the nodes still counted.
+         */
+        public int quorum(int minAcks) {
+            return (minAcks > 0) ? Math.min(minAcks, nodeCount()) : nodeCount() / 2 + 1;
+        }
+
+        /**
+         * Nodes of the round (including those no longer waited for).
+         */
+        public List<String> getNodes() {
+            return nodes;
+        }
+
+        public List<String> missingAcks() {
+            List<String> missing = new ArrayList<>();
+            BitSet waiting = (BitSet) counted.clone();
+            waiting.andNot(acked);
+            waiting.stream().forEach(i -> missing.add(nodes.get(i)));
+            return missing;
+        }
+
+        public boolean isDeadlinePassed() {
+            return deadlinePassed;
+        }
+
+        public void markDeadlinePassed() {
+            this.deadlinePassed = true;
+        }
+
+        public boolean isPersisting() {
+            return persisting;
+        }
+
+        public void markPersisting() {
+            this.persisting = true;
         }
 
     }
@@ -668,7 +1123,9 @@ public class SyncCoordinator {
      */
     public static class SyncResultObject { // this message will be protected using gRPC with TLS
         private String roundId;
-        private List<byte[]> orderedEnvelopes;
+        private List<ByteString> orderedEnvelopes;
+        private List<String> orderedSignerIds = new ArrayList<>();
+        private List<byte[]> orderedHashes = new ArrayList<>();
         private long blockNumber;
         private byte[] blockRoot;
         private byte[] signedBlockRoot;
@@ -683,14 +1140,30 @@ public class SyncCoordinator {
             this.roundId = roundId;
         }
 
-        public List<byte[]> getOrderedEnvelopes() {
+        public List<ByteString> getOrderedEnvelopes() {
             return orderedEnvelopes;
         }
 
-        public void setOrderedEnvelopes(List<byte[]> orderedEnvelopes) {
+        public void setOrderedEnvelopes(List<ByteString> orderedEnvelopes) {
             this.orderedEnvelopes = orderedEnvelopes;
         }
 
+        public List<String> getOrderedSignerIds() {
+            return orderedSignerIds;
+        }
+
+        public void setOrderedSignerIds(List<String> orderedSignerIds) {
+            this.orderedSignerIds = orderedSignerIds;
+        }
+
+        public List<byte[]> getOrderedHashes() {
+            return orderedHashes;
+        }
+
+        public void setOrderedHashes(List<byte[]> orderedHashes) {
+            this.orderedHashes = orderedHashes;
+        }
+
         public long getBlockNumber() {
             return blockNumber;
         }
@@ -732,39 +1205,6 @@ public class SyncCoordinator {
         }
     }
 
-    /**
-     * Wrapper for client gRPC connection.
-     */
-    public static class ClientConnection {
-        public final String nodeId;
-        public final StreamObserver<ServerMessage> observer;
-
-        public ClientConnection(String nodeId, StreamObserver<ServerMessage> observer) {
-            this.nodeId = nodeId;
-            this.observer = observer;
-        }
-    }
-
-    /**
-     * Internal: envelope with parsed metadata.
-     */
-    private static class EnvelopeWithMeta {
-        final Node signerNode;
-        final byte[] envelopeBytes;
-        final String hash;
-        final Envelope envelope;
-        final Instant timestamp;
-
-        EnvelopeWithMeta(Node signerNode, byte[] envelopeBytes, String hash,
-                         Envelope envelope, Instant timestamp) {
-            this.signerNode = signerNode;
-            this.envelopeBytes = envelopeBytes;
-            this.hash = hash;
-            this.envelope = envelope;
-            this.timestamp = timestamp;
-        }
-    }
-
     public static class VerificationsResult {
         private boolean success;
         private String errorCode;
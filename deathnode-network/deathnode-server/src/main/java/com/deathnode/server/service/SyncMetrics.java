@@ -0,0 +1,115 @@
+package com.deathnode.server.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the phases of a shard's sync rounds, all tagged with the shard.
+ * <p>
+ * Round phases: collect (round start to all buffers in), finalize (ordering, Merkle root
+ * and signing), sign, ack wait (SyncResult broadcast to commit decision) and persist.
+ * Per-node buffer verification is timed by {@link UploadVerificationStage}.
+ */
+public class SyncMetrics {
+
+    private final MeterRegistry registry;
+    private final String shard;
+
+    private final Timer collect;
+    private final Timer finalize;
+    private final Timer sign;
+    private final Timer ackWait;
+    private final Timer persist;
+    private final Counter roundsStarted;
+    private final Counter roundsAborted;
+    private final Counter nodeTimeouts;
+    private final Counter blocksCommitted;
+    private final Counter blocksVoided;
+    private final Map<String, DistributionSummary> broadcastBytes = new ConcurrentHashMap<>(); // by message type
+
+    public SyncMetrics(MeterRegistry registry, int shardId) {
+        this.registry = registry;
+        this.shard = String.valueOf(shardId);
+        this.collect = timer("deathnode.round.collect", "Round start until every buffer is in");
+        this.finalize = timer("deathnode.round.finalize", "Building and signing a block from the round's buffers");
+        this.sign = timer("deathnode.block.sign", "Signing a block root");
+        this.ackWait = timer("deathnode.block.ack.wait", "SyncResult broadcast until the commit decision");
+        this.persist = timer("deathnode.block.persist", "Persisting a committed block");
+        this.roundsStarted = counter("deathnode.rounds.started");
+        this.roundsAborted = counter("deathnode.rounds.aborted");
+        this.nodeTimeouts = counter("deathnode.round.node.timeouts");
+        this.blocksCommitted = counter("deathnode.blocks.committed");
+        this.blocksVoided = counter("deathnode.blocks.voided");
+    }
+
+    public void roundStarted() {
+        roundsStarted.increment();
+    }
+
+    public void roundAborted() {
+        roundsAborted.increment();
+    }
+
+    public void nodesTimedOut(int count) {
+        nodeTimeouts.increment(count);
+    }
+
+    public void collected(long nanos) {
+        collect.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void finalized(long nanos) {
+        finalize.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void signed(long nanos) {
+        sign.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void ackWaited(long nanos) {
+        ackWait.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void persisted(long nanos) {
+        persist.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void blockCommitted() {
+        blocksCommitted.increment();
+    }
+
+    public void blockVoided() {
+        blocksVoided.increment();
+    }
+
+    /**
+     * Bytes queued by one broadcast, by message type.
+     */
+    public void broadcast(String msgType, long bytes) {
+        broadcastBytes.computeIfAbsent(msgType, type -> DistributionSummary.builder("deathnode.broadcast.bytes")
+                        .description("Bytes queued on client streams by one broadcast")
+                        .baseUnit("bytes")
+                        .tag("shard", shard)
+                        .tag("type", type)
+                        .register(registry))
+                .record(bytes);
+    }
+
+    private Timer timer(String name, String description) {
+        return Timer.builder(name)
+                .description(description)
+                .tag("shard", shard)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private Counter counter(String name) {
+        return Counter.builder(name).tag("shard", shard).register(registry);
+    }
+}
@@ -0,0 +1,276 @@
+package com.deathnode.server.service;
+
+import com.deathnode.common.model.Envelope;
+import com.deathnode.common.model.Metadata;
+import com.deathnode.common.util.HashUtils;
+import com.deathnode.common.util.MerkleUtils;
+import com.deathnode.server.entity.Node;
+import com.deathnode.server.grpc.VerifiedEnvelope;
+import com.deathnode.server.service.SpeculativeChainState.ChainHead;
+import com.google.protobuf.ByteString;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Verification of uploaded buffers, off the gRPC and coordinator threads.
+ * <p>
+ * Buffers from different nodes are verified concurrently on a bounded pool; when its
+ * queue is full an upload is rejected with {@code VERIFICATION_OVERLOADED} instead of
+ * piling up. Within a large buffer the envelopes are parsed and hashed in parallel on
+ * a separate fork-join pool, and the Merkle root is rebuilt from those hashes.
+ */
+@Service
+public class UploadVerificationStage {
+
+    private static final Logger log = LoggerFactory.getLogger(UploadVerificationStage.class);
+
+    private final NodeChainCache nodeChainCache;
+    private final BlockSigningService blockSigningService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${sync.verify.threads:0}")
+    private int threads;
+    @Value("${sync.verify.queue-capacity:64}")
+    private int queueCapacity;
+    @Value("${sync.verify.parallel-threshold:32}")
+    private int parallelThreshold;
+
+    private ThreadPoolExecutor executor;
+    private ForkJoinPool envelopePool;
+
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder verifyNanos = new LongAdder();
+    private final AtomicLong maxVerifyNanos = new AtomicLong();
+    // verify timers per node, registered on the node's first upload
+    private final Map<String, VerifyTimers> verifyTimers = new ConcurrentHashMap<>();
+
+    public UploadVerificationStage(NodeChainCache nodeChainCache, BlockSigningService blockSigningService,
+                                   MeterRegistry meterRegistry) {
+        this.nodeChainCache = nodeChainCache;
+        this.blockSigningService = blockSigningService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        int poolSize = (threads > 0) ? threads : Math.max(2, Runtime.getRuntime().availableProcessors());
+        AtomicInteger threadIds = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "upload-verify-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        envelopePool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        envelopePool.shutdownNow();
+    }
+
+    /**
+     * Queue a buffer for verification. The future always completes normally, with a failed
+     * outcome if the buffer is invalid or the stage is overloaded.
+     *
+     * @param startHead node's speculative chain head, or null to start from the committed one
+     */
+    public CompletableFuture<VerificationOutcome> submit(String bufferNodeId, String expectedNodeId, ChainHead startHead,
+                                                         List<ByteString> envelopes, byte[] bufferRoot, byte[] signedBufferRoot) {
+        try {
+            return CompletableFuture.supplyAsync(() -> timed(bufferNodeId, expectedNodeId, startHead, envelopes, bufferRoot, signedBufferRoot), executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Verification queue full, rejecting buffer from {}", bufferNodeId);
+            return CompletableFuture.completedFuture(
+                    VerificationOutcome.failed("VERIFICATION_OVERLOADED", "Server is busy verifying other buffers"));
+        }
+    }
+
+    private VerificationOutcome timed(String bufferNodeId, String expectedNodeId, ChainHead startHead,
+                                      List<ByteString> envelopes, byte[] bufferRoot, byte[] signedBufferRoot) {
+        long start = System.nanoTime();
+        VerificationOutcome outcome = verify(bufferNodeId, expectedNodeId, startHead, envelopes, bufferRoot, signedBufferRoot);
+        long elapsed = System.nanoTime() - start;
+
+        verifyNanos.add(elapsed);
+        maxVerifyNanos.accumulateAndGet(elapsed, Math::max);
+        if (outcome.result().isSuccess()) {
+            verified.increment();
+        } else {
+            failed.increment();
+        }
+        VerifyTimers timers = verifyTimers.computeIfAbsent(bufferNodeId, this::registerVerifyTimers);
+        (outcome.result().isSuccess() ? timers.ok() : timers.failed()).record(elapsed, TimeUnit.NANOSECONDS);
+        log.atDebug().setMessage("Buffer verified")
+                .addKeyValue("node_id", bufferNodeId)
+                .addKeyValue("envelopes", envelopes.size())
+                .addKeyValue("outcome", () -> outcome.result().isSuccess() ? "ok" : outcome.result().getErrorCode())
+                .addKeyValue("duration_us", () -> TimeUnit.NANOSECONDS.toMicros(elapsed))
+                .log();
+        return outcome;
+    }
+
+    private VerifyTimers registerVerifyTimers(String nodeId) {
+        return new VerifyTimers(verifyTimer(nodeId, "ok"), verifyTimer(nodeId, "failed"));
+    }
+
+    private Timer verifyTimer(String nodeId, String outcome) {
+        return Timer.builder("deathnode.upload.verify")
+                .description("Verification of one node's buffer")
+                .tag("node", nodeId)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private record VerifyTimers(Timer ok, Timer failed) {
+    }
+
+    private VerificationOutcome verify(String bufferNodeId, String expectedNodeId, ChainHead startHead,
+                                       List<ByteString> envelopes, byte[] bufferRoot, byte[] signedBufferRoot) {
+        if (!bufferNodeId.equals(expectedNodeId)) {
+            log.warn("Node ID mismatch: stream={}, upload={}", expectedNodeId, bufferNodeId);
+            return VerificationOutcome.failed("NODE_ID_MISMATCH", "Node ID in upload doesn't match connection");
+        }
+
+        Node node = nodeChainCache.getNode(bufferNodeId);
+
+        try {
+            if (!blockSigningService.verify(bufferRoot, signedBufferRoot, node.getSignPubKey())) {
+                log.warn("Buffer signature verification failed for {}", bufferNodeId);
+                return VerificationOutcome.failed("INVALID_SIGNATURE", "Buffer signature verification failed");
+            }
+
+            List<VerifiedEnvelope> parsed = parseAndHash(bufferNodeId, envelopes);
+            List<byte[]> leafHashes = new ArrayList<>(parsed.size());
+            for (VerifiedEnvelope envelope : parsed) {
+                leafHashes.add(envelope.hash());
+            }
+
+            if (!Arrays.equals(MerkleUtils.computeMerkleRootFromLeafHashes(leafHashes), bufferRoot)) {
+                log.warn("Buffer Merkle root verification failed for {}", bufferNodeId);
+                return VerificationOutcome.failed("INVALID_MERKLE_ROOT", "Buffer Merkle root verification failed");
+            }
+
+            ChainHead tail = verifyEnvelopeChain(node, startHead, parsed);
+            if (tail == null) {
+                log.warn("Envelope chain verification failed for {}", bufferNodeId);
+                return VerificationOutcome.failed("INVALID_ENVELOPE_CHAIN", "Envelope chain verification failed");
+            }
+
+            // an empty buffer leaves the node's head where it was
+            return new VerificationOutcome(new SyncCoordinator.VerificationsResult(true, null, null), parsed, parsed.isEmpty() ? null : tail);
+
+        } catch (Exception e) {
+            log.warn("Verification error for {}: {}", bufferNodeId, e.getMessage());
+            return VerificationOutcome.failed("VERIFICATION_ERROR", "Error during verifications: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse and hash every envelope of a buffer, once; in parallel once the buffer is large
+     * enough for the split to pay off.
+     */
+    private List<VerifiedEnvelope> parseAndHash(String nodeId, List<ByteString> envelopes) throws Exception {
+        VerifiedEnvelope[] parsed = new VerifiedEnvelope[envelopes.size()];
+        if (envelopes.size() < parallelThreshold) {
+            for (int i = 0; i < envelopes.size(); i++) {
+                parsed[i] = parseAndHash(nodeId, envelopes.get(i));
+            }
+        } else {
+            // run in our own pool so the parallel stream does not use the common pool
+            envelopePool.submit(() -> IntStream.range(0, envelopes.size()).parallel()
+                    .forEach(i -> parsed[i] = parseAndHash(nodeId, envelopes.get(i)))).get();
+        }
+        return Arrays.asList(parsed);
+    }
+
+    private static VerifiedEnvelope parseAndHash(String nodeId, ByteString bytes) {
+        return VerifiedEnvelope.of(nodeId, bytes, HashUtils.sha256(bytes), Envelope.fromByteString(bytes));
+    }
+
+    /**
+     * Check that the envelopes continue the node's chain, starting from the given
+     * (speculative) head or, if null, from the committed head in the chain cache.
+     * Returns the node's head after the envelopes, or null if the chain is broken.
+     */
+    private ChainHead verifyEnvelopeChain(Node node, ChainHead startHead, List<VerifiedEnvelope> envelopes) {
+        String lastHash;
+        long expectedSeq;
+        if (startHead != null) {
+            lastHash = startHead.lastEnvelopeHash();
+            expectedSeq = startHead.lastSequenceNumber() + 1;
+        } else {
+            ChainHead committed = nodeChainCache.headOf(node.getNodeId());
+            lastHash = (committed != null) ? committed.lastEnvelopeHash() : null;
+            expectedSeq = (committed != null) ? committed.lastSequenceNumber() + 1 : 1L;
+        }
+
+        for (VerifiedEnvelope env : envelopes) {
+            Metadata meta = env.envelope().getMetadata();
+
+            // Check previous hash envelope chain
+            if ((lastHash == null && meta.getPrevEnvelopeHash() != null && !meta.getPrevEnvelopeHash().isEmpty()) ||
+                (lastHash != null && !lastHash.equals(meta.getPrevEnvelopeHash()))) {
+                log.warn("Envelope chain check failed for node {}: expected prev hash {}, got {}",
+                        node.getNodeId(), lastHash, meta.getPrevEnvelopeHash());
+                return null;
+            }
+
+            // Check sequence envelope chain
+            if (env.sequenceNumber() != expectedSeq) {
+                log.warn("Envelope chain check failed for node {}: expected seq {}, got {}",
+                        node.getNodeId(), expectedSeq, env.sequenceNumber());
+                return null;
+            }
+
+            // Update for next envelope (hash of the received bytes, as stored when committed)
+            lastHash = env.hashHex();
+            expectedSeq++;
+        }
+
+        return new ChainHead(expectedSeq - 1, lastHash);
+    }
+
+    public VerificationStats getStats() {
+        long done = verified.sum() + failed.sum();
+        return new VerificationStats(
+                executor.getQueue().size(),
+                executor.getActiveCount(),
+                verified.sum(),
+                failed.sum(),
+                rejected.sum(),
+                done == 0 ? 0 : verifyNanos.sum() / done / 1000,
+                maxVerifyNanos.get() / 1000);
+    }
+
+    public record VerificationStats(int queueDepth, int active, long verified, long failed, long rejected,
+                                    long avgVerifyMicros, long maxVerifyMicros) {
+    }
+}
@@ -0,0 +1,17 @@
+package com.deathnode.server.service;
+
+import com.deathnode.server.grpc.VerifiedEnvelope;
+import com.deathnode.server.service.SpeculativeChainState.ChainHead;
+
+import java.util.List;
+
+/**
+ * Internal: verification result of a buffer, its verified envelopes and the node's
+ * chain head after it (null if unchanged or failed).
+ */
+record VerificationOutcome(SyncCoordinator.VerificationsResult result, List<VerifiedEnvelope> envelopes, ChainHead tail) {
+
+    static VerificationOutcome failed(String errorCode, String errorMessage) {
+        return new VerificationOutcome(new SyncCoordinator.VerificationsResult(false, errorCode, errorMessage), List.of(), null);
+    }
+}